@@ -0,0 +1,321 @@
+/**
+ * Execution of a campaign on several worker processes, possibly on several machines
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Coordinator {
+    /**
+     * problems that can be run by the workers
+     */
+    static final List<String> PROBLEMS = List.of("triangle", "robot", "planning", "warehouse", "bag_ratio", "bag_value", "bag_size");
+
+    /**
+     * number of workers a range may fail on before the campaign is stopped
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    /**
+     * Usage:
+     * Coordinator problem runs [local_workers [port [seed [host]]]] to run a campaign,
+     * Coordinator worker host port to add a worker (from another machine for example).
+     * The coordinator only listens on the loopback address, unless the host (address of this machine) is given
+     * to accept the workers of other machines.
+     * The problems are triangle, robot, planning, warehouse, bag_ratio, bag_value and bag_size.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args[0].equals("worker")) {
+            worker(args[1], Integer.parseInt(args[2]));
+            return;
+        }
+
+        String problem = args[0];
+        long runs = Long.parseLong(args[1]);
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        InetAddress host = args.length > 5 ? InetAddress.getByName(args[5]) : InetAddress.getLoopbackAddress();
+
+        long start_time = System.nanoTime();
+
+        StreamingStats stats = coordinate(problem, runs, workers, port, seed, host);
+
+        long elapsed_time = System.nanoTime() - start_time;
+
+        System.out.println();
+        System.out.printf("RESULT %s (seed %d): %s", problem, seed, stats);
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+
+        Utils.export_stats("%s_sharded".formatted(problem), stats);
+    }
+
+    /**
+     * Split the runs of a campaign in ranges and hand them to the workers which connect to the coordinator
+     * @param problem problem to run
+     * @param runs number of runs of the campaign
+     * @param workers number of worker processes to start on this machine
+     * @param port port waiting for the workers, 0 for any free port
+     * @param seed seed of the campaign, the run r always uses the same instance whatever the worker doing it
+     * @param host address the coordinator listens on
+     * @return the merged statistics of all the runs
+     * @throws IllegalStateException if the campaign cannot be finished
+     */
+    static StreamingStats coordinate(String problem, long runs, int workers, int port, long seed, InetAddress host) throws Exception {
+        // checked here, a worker would fail on every range
+        if (!PROBLEMS.contains(problem)) throw new IllegalArgumentException("unknown problem: " + problem);
+
+        // small enough ranges so that the fast workers take more of them
+        long range = Math.max(1, runs / (8L * Math.max(1, workers)));
+
+        Campaign campaign = new Campaign(problem, seed, workers);
+        for (long first = 0; first < runs; first += range) campaign.pending.add(new long[]{first, Math.min(range, runs - first), 0});
+        campaign.remaining = new CountDownLatch(campaign.pending.size());
+        campaign.local.set(workers);
+
+        List<Process> processes = new ArrayList<>();
+
+        try (ServerSocket server = new ServerSocket(port, 50, host)) {
+            System.out.printf("Coordinator waiting for workers on %s port %d", host.getHostAddress(), server.getLocalPort());
+            System.out.println();
+
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        campaign.connected.incrementAndGet();
+                        Thread handler = new Thread(() -> serve(socket, campaign));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        // the server has been closed at the end of the campaign
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+            // the workers share the class data archive and the warm-up of the coordinator, if any
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+            if (Files.exists(WarmUp.ARCHIVE)) command.add("-XX:SharedArchiveFile=" + WarmUp.ARCHIVE);
+            if (WarmUp.ENABLED) command.add("-Dwarmup=true");
+            // the local workers reach the coordinator on the address it listens on
+            String address = host.isAnyLocalAddress() ? InetAddress.getLoopbackAddress().getHostAddress() : host.getHostAddress();
+            command.addAll(List.of("Coordinator", "worker", address, Integer.toString(server.getLocalPort())));
+
+            for (int w = 0; w < workers; w++) {
+                Process process = new ProcessBuilder(command)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+
+                process.onExit().thenRun(() -> {
+                    campaign.local.decrementAndGet();
+                    campaign.check();
+                });
+            }
+
+            while (!campaign.remaining.await(100, TimeUnit.MILLISECONDS)) {
+                if (campaign.failure.get() != null) throw new IllegalStateException(campaign.failure.get());
+            }
+
+            for (Process process : processes) process.waitFor();
+        } finally {
+            for (Process process : processes) process.destroy();
+        }
+
+        return campaign.total.get();
+    }
+
+    /**
+     * Hand ranges to a worker until the campaign is done. The range of a worker which fails is given back to the others,
+     * at most MAX_ATTEMPTS times.
+     */
+    private static void serve(Socket socket, Campaign campaign) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            while (campaign.remaining.getCount() > 0 && campaign.failure.get() == null) {
+                long[] range = campaign.pending.poll();
+
+                // every range is given, but one of them may come back if its worker fails
+                if (range == null) {
+                    Thread.sleep(10);
+                    continue;
+                }
+
+                try {
+                    out.writeUTF(campaign.problem);
+                    out.writeLong(campaign.seed);
+                    out.writeLong(range[0]);
+                    out.writeLong(range[1]);
+                    out.flush();
+
+                    StreamingStats.combine(campaign.total, StreamingStats.read(in, campaign.total.get()));
+                    campaign.remaining.countDown();
+                } catch (IOException | RuntimeException e) {
+                    // a lost connection, or statistics that cannot be merged (a worker built with another layout):
+                    // in both cases the range is not done
+                    if (++range[2] < MAX_ATTEMPTS) campaign.pending.add(range);
+                    else campaign.failure.compareAndSet(null, "the runs %d to %d failed on %d workers".formatted(range[0], range[0] + range[1] - 1, range[2]));
+                    throw e;
+                }
+            }
+
+            // an empty range stops the worker
+            out.writeUTF(campaign.problem);
+            out.writeLong(campaign.seed);
+            out.writeLong(0);
+            out.writeLong(0);
+            out.flush();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            campaign.connected.decrementAndGet();
+            campaign.check();
+        }
+    }
+
+    /**
+     * Run the ranges given by a coordinator and send back their statistics
+     * @param host address of the coordinator
+     * @param port port of the coordinator
+     */
+    static void worker(String host, int port) throws IOException {
+        boolean cold = WarmUp.ENABLED;
+
+        // the details of each run are not needed, only the statistics go back to the coordinator
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        try (Socket socket = new Socket(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            while (true) {
+                String problem = in.readUTF();
+                long seed = in.readLong();
+                long first = in.readLong();
+                long count = in.readLong();
+
+                if (count == 0) break;
+
+                // a short-lived worker would otherwise do its first ranges with the interpreter,
+                // the problem is only known with the first range
+                if (cold) {
+                    WarmUp.run(problem.startsWith("bag") ? "bag" : problem);
+                    cold = false;
+                }
+
+                StreamingStats stats = new StreamingStats();
+                for (long run = first; run < first + count; run++) stats.add(run(problem, new Random(mix(seed, run))));
+
+                stats.write(out);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Make one run of a problem
+     * @param problem name of the problem
+     * @param rand PRNG of the run
+     * @return the relative distance between the strategies
+     */
+    static double run(String problem, Random rand) {
+        // every case must be in PROBLEMS
+        return switch (problem) {
+            case "triangle" -> MaximumPathTriangle.run(rand, null);
+            case "robot" -> MinimumPathRobot.run(rand, null);
+            case "planning" -> OptimalPlanning.run(rand, null);
+            case "warehouse" -> OptimalWarehouse.run(rand, null);
+            case "bag_ratio" -> MaximumValueBag.run(rand, null, MaximumValueBag.GloutonStrategy.BY_RATIO);
+            case "bag_value" -> MaximumValueBag.run(rand, null, MaximumValueBag.GloutonStrategy.BY_VALUE);
+            case "bag_size" -> MaximumValueBag.run(rand, null, MaximumValueBag.GloutonStrategy.BY_SIZE);
+            default -> throw new IllegalArgumentException("unknown problem: " + problem);
+        };
+    }
+
+    /**
+     * State of a campaign shared by the threads of the coordinator
+     */
+    private static class Campaign {
+        final String problem;
+        final long seed;
+
+        /**
+         * ranges waiting for a worker: first run, number of runs, number of failed attempts
+         */
+        final ConcurrentLinkedQueue<long[]> pending = new ConcurrentLinkedQueue<>();
+        CountDownLatch remaining;
+        final AtomicReference<StreamingStats> total = new AtomicReference<>(new StreamingStats());
+
+        /**
+         * local worker processes still running, and workers (local or not) connected
+         */
+        final AtomicInteger local = new AtomicInteger();
+        final AtomicInteger connected = new AtomicInteger();
+
+        /**
+         * reason of the failure of the campaign, null while it can go on
+         */
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        /**
+         * true if the campaign started local workers
+         */
+        final boolean spawned;
+
+        Campaign(String problem, long seed, int workers) {
+            this.problem = problem;
+            this.seed = seed;
+            this.spawned = workers > 0;
+        }
+
+        /**
+         * Stop the campaign if it started local workers and none of them is left, nor any other worker.
+         * A campaign without local workers waits for the remote ones.
+         */
+        void check() {
+            if (local.get() == 0 && connected.get() == 0 && remaining.getCount() > 0 && spawned) {
+                failure.compareAndSet(null, "no worker left, %d ranges not done".formatted(remaining.getCount()));
+            }
+        }
+    }
+
+    /**
+     * Seed of a run, mixed so that the consecutive runs get unrelated instances (finalizer of SplitMix64)
+     */
+    static long mix(long seed, long run) {
+        long z = seed + (run + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
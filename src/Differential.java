@@ -0,0 +1,662 @@
+/**
+ * Differential checks of every engine against the reference dynamic programming, with their throughput
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+public class Differential {
+    /**
+     * throughput of each engine in the previous accepted run
+     */
+    private static final Path BASELINE = Path.of("./data/differential_baseline.csv");
+
+    /**
+     * an engine fails when it is this many times slower than in the baseline
+     */
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("tolerance", "2"));
+
+    /**
+     * total time and number of calls of each engine
+     */
+    private static final Map<String, long[]> TIMES = new TreeMap<>();
+
+    /**
+     * number of resolutions of each instance by each engine when timed, the fastest one being kept
+     */
+    private static final int REPEATS = 5;
+
+    private static int repeats = 1;
+
+    /**
+     * maximum number of layers, and of nodes in a layer, of the random sparse graphs
+     */
+    private static final int LAYERS = 100;
+
+    /**
+     * number of paths asked to the k best paths engines
+     */
+    private static final int TOP_K = 5;
+
+    private static int failures = 0;
+
+    /**
+     * Usage: Differential [seed [instances]]. With -Dbaseline=update, the throughputs become the new baseline,
+     * with -Dbaseline=skip, they are not compared.
+     * The exit code is 1 if an engine gives a wrong result, is slower than its baseline, or if there is no baseline
+     * for these instances and the performance check is not explicitly skipped.
+     */
+    public static void main(String[] args) throws Exception {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 2102;
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        System.out.printf("Differential checks, seed %d, %d random instances per problem", seed, instances);
+        System.out.println();
+
+        // the first pass checks the results and compiles the engines, the second one, on the same instances, is timed
+        for (int pass = 0; pass < 2 && failures == 0; pass++) {
+            TIMES.clear();
+            repeats = pass == 0 ? 1 : REPEATS;
+            Random rand = new Random(seed);
+
+            for (int i = 0; i < instances; i++) {
+                bag(randomBag(rand));
+                triangle(randomTriangle(rand, rand.nextInt(MaximumPathTriangle.LMAX) + 1));
+                robot(randomGrids(rand, rand.nextInt(100) + 1, rand.nextInt(100) + 1));
+
+                // small enough for the enumeration of all their paths
+                triangle(randomTriangle(rand, rand.nextInt(12) + 1));
+                robot(randomGrids(rand, rand.nextInt(6) + 1, rand.nextInt(6) + 1));
+                planning(OptimalPlanning.generateNotes(rand.nextInt(OptimalPlanning.TMAX) + 1, rand.nextInt(OptimalPlanning.HMAX) + 1, rand));
+                warehouse(OptimalWarehouse.generateGain(rand.nextInt(OptimalWarehouse.WMAX) + 1, rand.nextInt(OptimalWarehouse.SMAX) + 1, rand));
+
+                // gains which go down, concave (solved by the marginal greedy of the planner) or not
+                warehouse(concaveTable(rand, rand.nextInt(OptimalWarehouse.WMAX) + 1, rand.nextInt(OptimalWarehouse.SMAX) + 1));
+                planning(concaveTable(rand, rand.nextInt(OptimalPlanning.TMAX) + 1, rand.nextInt(OptimalPlanning.HMAX) + 1));
+                warehouse(randomTable(rand, rand.nextInt(OptimalWarehouse.WMAX) + 1, rand.nextInt(OptimalWarehouse.SMAX) + 1));
+
+                dag(randomLayers(rand, rand.nextInt(LAYERS) + 1, rand.nextInt(LAYERS) + 1, rand.nextInt(4) + 1));
+            }
+
+            adversarial(rand);
+        }
+
+        if (failures == 0) throughput(seed, instances);
+
+        if (failures > 0) {
+            System.out.printf("%d FAILURES", failures);
+            System.out.println();
+            System.exit(1);
+        }
+
+        System.out.println("OK");
+    }
+
+    /**
+     * Instances at the limits of the problems
+     */
+    private static void adversarial(Random rand) {
+        // the largest grid of the launches, a 1 x 1 grid, a single line and a single column
+        robot(randomGrids(rand, MinimumPathRobot.LMAX, MinimumPathRobot.CMAX));
+        robot(randomGrids(rand, 1, 1));
+        robot(randomGrids(rand, 1, MinimumPathRobot.CMAX));
+        robot(randomGrids(rand, MinimumPathRobot.LMAX, 1));
+
+        // warehouses without any gain, a gain going down, and a single warehouse
+        warehouse(new int[OptimalWarehouse.WMAX][OptimalWarehouse.SMAX + 1]);
+        warehouse(new int[][]{{0, 5, 3}});
+        warehouse(new int[][]{{0, 5, 3, 2}, {0, 1, 0, 0}});
+        warehouse(OptimalWarehouse.generateGain(1, OptimalWarehouse.SMAX, rand));
+
+        // marks which do not increase, a single hour
+        int[][] flat = new int[OptimalPlanning.TMAX][OptimalPlanning.HMAX + 1];
+        for (int[] line : flat) Arrays.fill(line, 10);
+        planning(flat);
+        planning(new int[][]{{4, 9, 7}, {2, 1, 0}});
+        planning(OptimalPlanning.generateNotes(OptimalPlanning.TMAX, 1, rand));
+
+        // a single level, the largest triangle, a triangle of zeros
+        triangle(randomTriangle(rand, 1));
+        triangle(randomTriangle(rand, MaximumPathTriangle.LMAX));
+        triangle(new int[MaximumPathTriangle.LMAX * (MaximumPathTriangle.LMAX + 1) / 2]);
+
+        // a single node, a single long chain, a large sparse graph
+        dag(randomLayers(rand, 1, 1, 1));
+        dag(randomLayers(rand, 100_000, 1, 1));
+        dag(randomLayers(rand, 1_000, 1_000, 3));
+
+        // no object, no capacity, objects all too big, identical objects, everything fitting
+        bag(new BagCase(new MaximumValueBag.BagObject[0], MaximumValueBag.CMAX));
+        bag(new BagCase(randomObjects(rand, MaximumValueBag.NMAX), 0));
+        MaximumValueBag.BagObject[] objects = new MaximumValueBag.BagObject[MaximumValueBag.NMAX];
+        Arrays.fill(objects, new MaximumValueBag.BagObject(MaximumValueBag.SMAX, MaximumValueBag.VMAX));
+        bag(new BagCase(objects.clone(), MaximumValueBag.SMAX - 1));
+        bag(new BagCase(objects.clone(), MaximumValueBag.CMAX));
+        bag(new BagCase(objects.clone(), MaximumValueBag.NMAX * MaximumValueBag.SMAX));
+    }
+
+    private static void bag(BagCase bag) {
+        MaximumValueBag.BagObject[] objects = bag.objects();
+        int n = objects.length, C = bag.C();
+        String name = "bag n=%d C=%d".formatted(n, C);
+
+        int v = time("bag.reference", () -> referenceBag(objects, C));
+
+        check("bag.calculerM", v, time("bag.calculerM", () -> MaximumValueBag.calculerM(objects, C)[n][C]), name);
+        check("bag.planner", v, time("bag.planner", () -> SolverPlanner.bag(objects, C, SolverPlanner.Guarantee.EXACT).value()), name);
+        check("bag.solveWithin", v, time("bag.solveWithin", () -> MaximumValueBag.solveWithin(objects, C, SolveContext.unbounded()).upper()), name);
+
+        // a single copy of each object and no volume are the plain bag
+        int[] ones = new int[n], zeros = new int[n];
+        Arrays.fill(ones, 1);
+        check("bag.bounded", v, time("bag.bounded", () -> MaximumValueBag.calculerMBounded(objects, ones, C)), name);
+        check("bag.2d", v, time("bag.2d", () -> MaximumValueBag.calculerM2D(objects, zeros, ones, C, 0)), name);
+
+        // several copies are compared to the bag holding each copy as a distinct object
+        Random rand = new Random(n * 31L + C);
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) counts[i] = rand.nextInt(4) + 1;
+        MaximumValueBag.BagObject[] copies = expand(objects, counts);
+        check("bag.bounded.copies", referenceBag(copies, C), MaximumValueBag.calculerMBounded(objects, counts, C), name);
+
+        // the volume, on a part of the instance small enough for the reference
+        int m = Math.min(n, 20), c2 = Math.min(C, 200), V = rand.nextInt(60);
+        MaximumValueBag.BagObject[] part = Arrays.copyOf(objects, m);
+        int[] volumes = new int[m];
+        for (int i = 0; i < m; i++) volumes[i] = rand.nextInt(20);
+        int[] few = Arrays.copyOf(counts, m);
+        check("bag.2d.volumes", reference2D(expand(part, few), expand(volumes, few), c2, V),
+                MaximumValueBag.calculerM2D(part, volumes, few, c2, V), name + " V=" + V);
+
+        bounds("bag.expired", v, MaximumValueBag.solveWithin(objects, C, expired()), name);
+        bounds("bag.budget", v, MaximumValueBag.solveWithin(objects, C, budget(rand)), name);
+
+        if ((long) (n + 1) * (C + 1) < 1_000_000) {
+            // the creation of the file is left out of the time, every value of the table is written again by each resolution
+            try (OffHeapTable M = new OffHeapTable(n + 1, C + 1)) {
+                check("bag.offheap", v, time("bag.offheap", () -> MaximumValueBag.calculerM(objects, C, M).get(n, C)), name);
+            }
+        }
+
+        // the approximation must stay between its guarantee and the optimum
+        MaximumValueBag.Approximation approximation = MaximumValueBag.calculerFPTAS(objects, C, 0.1);
+        time("bag.fptas", () -> MaximumValueBag.calculerFPTAS(objects, C, 0.1).value());
+        if (approximation.value() > v || approximation.value() < approximation.ratio() * v) fail("bag.fptas", v, approximation.value(), name);
+    }
+
+    private static void triangle(int[] T) {
+        String name = "triangle values=%d".formatted(T.length);
+
+        int v = time("triangle.reference", () -> referenceTriangle(T));
+
+        check("triangle.calculerM", v, time("triangle.calculerM", () -> MaximumPathTriangle.calculerM(T)[0]), name);
+        check("triangle.topK", v, time("triangle.topK", () -> MaximumPathTriangle.calculerTopK(T, 1)[0].value()), name);
+        check("triangle.solveWithin", v, time("triangle.solveWithin", () -> MaximumPathTriangle.solveWithin(T, SolveContext.unbounded()).lower()), name);
+        check("triangle.planner", v, time("triangle.planner", () -> SolverPlanner.triangle(T, SolverPlanner.Guarantee.EXACT).value()), name);
+        check("triangle.dag", v, time("triangle.dag", () -> WeightedDag.fromTriangle(T).calculerM()[0]), name);
+
+        // the path found in the graph must have the value of the optimum
+        WeightedDag dag = WeightedDag.fromTriangle(T);
+        check("triangle.dag.path", v, Arrays.stream(dag.path(dag.calculerM(), 0)).map(i -> T[i]).sum(), name);
+
+        // the k best paths, their moves replayed, and all the paths on the small triangles
+        KBestPaths.Path[] paths = MaximumPathTriangle.calculerTopK(T, TOP_K);
+        for (KBestPaths.Path path : paths) {
+            int i = 0, sum = T.length == 0 ? 0 : T[0];
+            for (String move : moves(path)) {
+                i = move.equals("g") ? MaximumPathTriangle.g(i) : MaximumPathTriangle.d(i);
+                sum += T[i];
+            }
+            check("triangle.topK.moves", path.value(), sum, name);
+        }
+
+        int levels = 0;
+        while (levels * (levels + 1) / 2 < T.length) levels++;
+        if (levels <= 12) {
+            List<Integer> all = new ArrayList<>();
+            allTriangle(T, 0, 0, all);
+            all.sort(Comparator.reverseOrder());
+            compare("triangle.topK.k", all, paths, name);
+        }
+
+        Random rand = new Random(T.length);
+        bounds("triangle.expired", v, MaximumPathTriangle.solveWithin(T, expired()), name);
+        bounds("triangle.budget", v, MaximumPathTriangle.solveWithin(T, budget(rand)), name);
+    }
+
+    private static void dag(Layers layers) {
+        int n = layers.weights().length, m = layers.from().length;
+        String name = "dag nodes=%d edges=%d".formatted(n, m);
+
+        int v = time("dag.reference", () -> referenceLayers(layers));
+
+        // the engine gets the nodes renumbered at random and the edges in a random order
+        Random rand = new Random(n * 31L + m);
+        int[] label = shuffled(rand, n), order = shuffled(rand, m);
+        int[] weights = new int[n], from = new int[m], to = new int[m];
+        for (int u = 0; u < n; u++) weights[label[u]] = layers.weights()[u];
+        for (int e = 0; e < m; e++) {
+            from[order[e]] = label[layers.from()[e]];
+            to[order[e]] = label[layers.to()[e]];
+        }
+
+        check("dag.longest", v, time("dag.longest", () -> WeightedDag.fromEdges(weights, from, to).longest()), name);
+    }
+
+    private static void robot(Sweep.Grids g) {
+        int L = g.N().length, C = g.N()[0].length;
+        String name = "robot %dx%d".formatted(L, C);
+
+        int v = time("robot.reference", () -> MinimumPathRobot.calculerM(g.N(), g.E(), g.NE())[L - 1][C - 1]);
+
+        check("robot.topK", v, time("robot.topK", () -> MinimumPathRobot.calculerTopK(g.N(), g.E(), g.NE(), 1)[0].value()), name);
+        check("robot.solveWithin", v, time("robot.solveWithin", () -> MinimumPathRobot.solveWithin(g.N(), g.E(), g.NE(), SolveContext.unbounded()).upper()), name);
+        check("robot.planner", v, time("robot.planner", () -> SolverPlanner.robot(g.N(), g.E(), g.NE(), SolverPlanner.Guarantee.EXACT).value()), name);
+        try (OffHeapTable M = new OffHeapTable(L, C)) {
+            check("robot.offheap", v, time("robot.offheap", () -> MinimumPathRobot.calculerM(g.N(), g.E(), g.NE(), M).get(L - 1, C - 1)), name);
+        }
+
+        // the k best paths, their moves replayed, and all the paths on the small grids
+        KBestPaths.Path[] paths = MinimumPathRobot.calculerTopK(g.N(), g.E(), g.NE(), TOP_K);
+        for (KBestPaths.Path path : paths) {
+            int l = 0, c = 0, sum = 0;
+            for (String move : moves(path)) {
+                switch (move) {
+                    case "E" -> sum += g.E()[l][++c];
+                    case "N" -> sum += g.N()[++l][c];
+                    default -> sum += g.NE()[++l][++c];
+                }
+            }
+            check("robot.topK.moves", path.value(), l == L - 1 && c == C - 1 ? sum : -1, name);
+        }
+
+        if (L <= 6 && C <= 6) {
+            List<Integer> all = new ArrayList<>();
+            allRobot(g, 0, 0, 0, all);
+            all.sort(Comparator.naturalOrder());
+            compare("robot.topK.k", all, paths, name);
+        }
+
+        Random rand = new Random(L * 31L + C);
+        bounds("robot.expired", v, MinimumPathRobot.solveWithin(g.N(), g.E(), g.NE(), expired()), name);
+        bounds("robot.budget", v, MinimumPathRobot.solveWithin(g.N(), g.E(), g.NE(), budget(rand)), name);
+    }
+
+    private static void planning(int[][] E) {
+        int n = E.length, H = E[0].length - 1;
+        String name = "planning units=%d hours=%d".formatted(n, H);
+
+        int v = time("planning.reference", () -> OptimalPlanning.calculerMA(E)[0][n][H]);
+
+        check("planning.planner", v, time("planning.planner", () -> SolverPlanner.planning(E, SolverPlanner.Guarantee.EXACT).value()), name);
+        check("planning.solveWithin", v, time("planning.solveWithin", () -> OptimalPlanning.solveWithin(E, SolveContext.unbounded()).lower()), name);
+
+        bounds("planning.expired", v, OptimalPlanning.solveWithin(E, expired()), name);
+        bounds("planning.budget", v, OptimalPlanning.solveWithin(E, budget(new Random(n * 31L + H))), name);
+    }
+
+    private static void warehouse(int[][] G) {
+        int n = G.length, S = G[0].length - 1;
+        String name = "warehouse warehouses=%d stock=%d".formatted(n, S);
+
+        int v = time("warehouse.reference", () -> OptimalWarehouse.calculerMA(G)[n][S]);
+
+        check("warehouse.planner", v, time("warehouse.planner", () -> SolverPlanner.warehouse(G, SolverPlanner.Guarantee.EXACT).value()), name);
+        check("warehouse.solveWithin", v, time("warehouse.solveWithin", () -> OptimalWarehouse.solveWithin(G, SolveContext.unbounded()).lower()), name);
+
+        bounds("warehouse.expired", v, OptimalWarehouse.solveWithin(G, expired()), name);
+        bounds("warehouse.budget", v, OptimalWarehouse.solveWithin(G, budget(new Random(n * 31L + S))), name);
+    }
+
+    /**
+     * The dynamic programming of the bag as first written, element by element
+     */
+    private static int referenceBag(MaximumValueBag.BagObject[] objects, int C) {
+        int n = objects.length;
+        int[][] M = new int[n + 1][C + 1];
+
+        for (int k = 1; k < n + 1; k++) {
+            for (int c = 0; c < C + 1; c++) {
+                if (c - objects[k - 1].size() < 0)
+                    M[k][c] = M[k - 1][c];
+                else
+                    M[k][c] = Math.max(M[k - 1][c], objects[k - 1].value() + M[k - 1][c - objects[k - 1].size()]);
+            }
+        }
+
+        return M[n][C];
+    }
+
+    /**
+     * The bag with a volume, every object being taken at most once
+     */
+    private static int reference2D(MaximumValueBag.BagObject[] objects, int[] volumes, int C, int V) {
+        int[][] M = new int[C + 1][V + 1];
+
+        // the capacities are gone through downwards so that each object is counted once
+        for (int k = 0; k < objects.length; k++) {
+            for (int c = C; c >= objects[k].size(); c--) {
+                for (int w = V; w >= volumes[k]; w--) {
+                    M[c][w] = Math.max(M[c][w], M[c - objects[k].size()][w - volumes[k]] + objects[k].value());
+                }
+            }
+        }
+
+        return M[C][V];
+    }
+
+    /**
+     * Values of all the paths of a triangle from the index i, sum being the value of the path above
+     */
+    private static void allTriangle(int[] T, int i, int sum, List<Integer> all) {
+        if (T.length == 0) return;
+        sum += T[i];
+
+        if (MaximumPathTriangle.g(i) >= T.length) all.add(sum);
+        else {
+            allTriangle(T, MaximumPathTriangle.g(i), sum, all);
+            allTriangle(T, MaximumPathTriangle.d(i), sum, all);
+        }
+    }
+
+    /**
+     * Costs of all the paths of the robot from the cell (l, c), sum being the cost of the path so far
+     */
+    private static void allRobot(Sweep.Grids g, int l, int c, int sum, List<Integer> all) {
+        int L = g.N().length, C = g.N()[0].length;
+
+        if (l == L - 1 && c == C - 1) {
+            all.add(sum);
+            return;
+        }
+
+        if (c + 1 < C) allRobot(g, l, c + 1, sum + g.E()[l][c + 1], all);
+        if (l + 1 < L) allRobot(g, l + 1, c, sum + g.N()[l + 1][c], all);
+        if (l + 1 < L && c + 1 < C) allRobot(g, l + 1, c + 1, sum + g.NE()[l + 1][c + 1], all);
+    }
+
+    /**
+     * The dynamic programming of the triangle as first written, with the index arithmetic
+     */
+    private static int referenceTriangle(int[] T) {
+        int[] M = new int[T.length];
+
+        for (int i = T.length - 1; i >= 0; i--) {
+            if (MaximumPathTriangle.g(i) >= T.length) M[i] = T[i];
+            else M[i] = Math.max(M[MaximumPathTriangle.g(i)], M[MaximumPathTriangle.d(i)]) + T[i];
+        }
+
+        return M[0];
+    }
+
+    /**
+     * Longest path of a layered graph in the numbering of its generation, where every edge goes to a higher node:
+     * the nodes are done in decreasing order, their successors being already known
+     */
+    private static int referenceLayers(Layers layers) {
+        int[] W = layers.weights(), from = layers.from(), to = layers.to();
+        int[] M = new int[W.length];
+        boolean[] reached = new boolean[W.length];
+
+        // the edges are generated by increasing origin
+        for (int u = W.length - 1, e = from.length - 1; u >= 0; u--) {
+            int best = Integer.MIN_VALUE;
+            for (; e >= 0 && from[e] == u; e--) {
+                best = Math.max(best, M[to[e]]);
+                reached[to[e]] = true;
+            }
+            M[u] = W[u] + (best == Integer.MIN_VALUE ? 0 : best);
+        }
+
+        int best = Integer.MIN_VALUE;
+        for (int u = 0; u < W.length; u++) if (!reached[u]) best = Math.max(best, M[u]);
+
+        return best;
+    }
+
+    private static int time(String engine, IntSupplier solver) {
+        int value = 0;
+        long fastest = Long.MAX_VALUE;
+
+        // the fastest resolution leaves out the collections and the compilations which happened meanwhile
+        for (int r = 0; r < repeats; r++) {
+            long start = System.nanoTime();
+            value = solver.getAsInt();
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        long[] time = TIMES.computeIfAbsent(engine, e -> new long[2]);
+        time[0] += fastest;
+        time[1]++;
+        return value;
+    }
+
+    /**
+     * The k best paths must be the k first values of all the paths, in the same order
+     */
+    private static void compare(String engine, List<Integer> all, KBestPaths.Path[] paths, String instance) {
+        check(engine + ".count", Math.min(TOP_K, all.size()), paths.length, instance);
+        for (int r = 0; r < Math.min(paths.length, all.size()); r++) check(engine, all.get(r), paths[r].value(), instance);
+    }
+
+    /**
+     * The bounds given by an interrupted resolution must hold the optimum
+     */
+    private static void bounds(String engine, int optimum, SolveContext.Bound bound, String instance) {
+        if (bound.lower() > optimum || bound.upper() < optimum) {
+            failures++;
+            System.out.printf("WRONG %s on %s: [%d, %d] does not hold %d", engine, instance, bound.lower(), bound.upper(), optimum);
+            System.out.println();
+        }
+    }
+
+    /**
+     * @return a context expired before the resolution starts
+     */
+    private static SolveContext expired() {
+        SolveContext context = SolveContext.unbounded();
+        context.cancel();
+        return context;
+    }
+
+    /**
+     * @return a context expiring after a few microseconds, most often during the resolution
+     */
+    private static SolveContext budget(Random rand) {
+        return SolveContext.within(rand.nextInt(200_000), TimeUnit.NANOSECONDS);
+    }
+
+    private static String[] moves(KBestPaths.Path path) {
+        return path.moves().isEmpty() ? new String[0] : path.moves().split(" ");
+    }
+
+    private static void check(String engine, int expected, int actual, String instance) {
+        if (expected != actual) fail(engine, expected, actual, instance);
+    }
+
+    private static void fail(String engine, int expected, int actual, String instance) {
+        failures++;
+        System.out.printf("WRONG %s on %s: %d instead of %d", engine, instance, actual, expected);
+        System.out.println();
+    }
+
+    /**
+     * Print the mean time of each engine, and compare it to the baseline
+     */
+    private static void throughput(long seed, int instances) throws Exception {
+        // the times only compare on the same instances, the first line of the baseline tells which ones
+        String instances_line = "instances,%d,%d".formatted(seed, instances);
+        String mode = System.getProperty("baseline", "check");
+        Map<String, Double> baseline = new TreeMap<>();
+
+        List<String> lines = Files.exists(BASELINE) ? Files.readAllLines(BASELINE) : List.of();
+
+        if (!lines.isEmpty() && lines.get(0).equals(instances_line)) {
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(",");
+                baseline.put(fields[0], Double.parseDouble(fields[1]));
+            }
+        } else if (mode.equals("check")) {
+            // the baseline is not versioned (the times depend on the machine): without it, a slowdown would go unnoticed
+            failures++;
+            System.out.printf("NO BASELINE for these instances (seed %d, %d instances) in %s, the performance is not checked: "
+                    + "create it with -Dbaseline=update, or skip the check with -Dbaseline=skip", seed, instances, BASELINE);
+            System.out.println();
+        }
+
+        if (mode.equals("skip")) {
+            baseline.clear();
+            System.out.println("Performance check skipped");
+        }
+
+        StringBuilder csv = new StringBuilder(instances_line).append('\n');
+
+        for (Map.Entry<String, long[]> entry : TIMES.entrySet()) {
+            double mean = (double) entry.getValue()[0] / entry.getValue()[1];
+            Double previous = baseline.get(entry.getKey());
+
+            System.out.printf("%-24s %14.0f ns/instance%s", entry.getKey(), mean,
+                    previous == null ? "" : "  (baseline %.0f)".formatted(previous));
+            System.out.println();
+
+            if (previous != null && mean > TOLERANCE * previous) {
+                failures++;
+                System.out.printf("SLOWER %s: %.0f ns instead of %.0f ns", entry.getKey(), mean, previous);
+                System.out.println();
+            }
+
+            csv.append(entry.getKey()).append(',').append(mean).append('\n');
+        }
+
+        if (mode.equals("update")) {
+            try (FileWriter file = new FileWriter(BASELINE.toFile())) {
+                file.append(csv);
+            }
+        }
+    }
+
+    private static BagCase randomBag(Random rand) {
+        int n = rand.nextInt(MaximumValueBag.NMAX) + 1;
+        return new BagCase(randomObjects(rand, n), rand.nextInt(MaximumValueBag.CMAX) + 1);
+    }
+
+    private static MaximumValueBag.BagObject[] randomObjects(Random rand, int n) {
+        MaximumValueBag.BagObject[] objects = new MaximumValueBag.BagObject[n];
+        for (int i = 0; i < n; i++) objects[i] = MaximumValueBag.BagObject.CreateRandomObject(rand);
+        return objects;
+    }
+
+    private static int[] randomTriangle(Random rand, int levels) {
+        int[] T = new int[levels * (levels + 1) / 2];
+        for (int i = 0; i < T.length; i++) T[i] = rand.nextInt(MaximumPathTriangle.VMAX);
+        return T;
+    }
+
+    private static Sweep.Grids randomGrids(Random rand, int L, int C) {
+        return new Sweep.Grids(MinimumPathRobot.generateGrid(L, C, rand), MinimumPathRobot.generateGrid(L, C, rand),
+                MinimumPathRobot.generateGrid(L, C, rand));
+    }
+
+    /**
+     * Random layered graph with missing nodes and a variable fan-out, numbered layer by layer
+     * @param layers number of layers
+     * @param width maximum number of nodes of a layer
+     * @param fan_out maximum number of successors of a node, in the next layer
+     */
+    private static Layers randomLayers(Random rand, int layers, int width, int fan_out) {
+        int[] sizes = new int[layers];
+        int n = 0;
+        for (int l = 0; l < layers; l++) n += sizes[l] = rand.nextInt(width) + 1;
+
+        int[] weights = new int[n];
+        for (int u = 0; u < n; u++) weights[u] = rand.nextInt(MaximumPathTriangle.VMAX);
+
+        int[] from = new int[n * fan_out], to = new int[n * fan_out];
+        int m = 0;
+
+        for (int l = 0, first = 0; l < layers - 1; first += sizes[l], l++) {
+            int next = first + sizes[l];
+
+            for (int u = first; u < next; u++) {
+                // some nodes have no successor, the others up to fan_out distinct ones
+                int degree = Math.min(rand.nextInt(fan_out + 1), sizes[l + 1]);
+                int start = rand.nextInt(sizes[l + 1]);
+
+                for (int k = 0; k < degree; k++, m++) {
+                    from[m] = u;
+                    to[m] = next + (start + k) % sizes[l + 1];
+                }
+            }
+        }
+
+        return new Layers(weights, Arrays.copyOf(from, m), Arrays.copyOf(to, m));
+    }
+
+    /**
+     * Table whose lines have decreasing increments, which end up negative
+     */
+    private static int[][] concaveTable(Random rand, int n, int m) {
+        int[][] table = new int[n][m + 1];
+
+        for (int[] line : table) {
+            int[] increments = new int[m];
+            for (int q = 0; q < m; q++) increments[q] = rand.nextInt(21) - 10;
+            Arrays.sort(increments);
+
+            for (int q = 1; q <= m; q++) line[q] = line[q - 1] + increments[m - q];
+        }
+
+        return table;
+    }
+
+    /**
+     * Table of gains without any order
+     */
+    private static int[][] randomTable(Random rand, int n, int m) {
+        int[][] table = new int[n][m + 1];
+        for (int[] line : table) for (int q = 0; q <= m; q++) line[q] = rand.nextInt(20);
+        return table;
+    }
+
+    private static MaximumValueBag.BagObject[] expand(MaximumValueBag.BagObject[] objects, int[] counts) {
+        List<MaximumValueBag.BagObject> copies = new ArrayList<>();
+        for (int i = 0; i < objects.length; i++) for (int k = 0; k < counts[i]; k++) copies.add(objects[i]);
+        return copies.toArray(new MaximumValueBag.BagObject[0]);
+    }
+
+    private static int[] expand(int[] values, int[] counts) {
+        return IntStream.range(0, values.length).flatMap(i -> IntStream.generate(() -> values[i]).limit(counts[i])).toArray();
+    }
+
+    private static int[] shuffled(Random rand, int n) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) permutation[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1), t = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = t;
+        }
+        return permutation;
+    }
+
+    private record Layers(int[] weights, int[] from, int[] to) {
+    }
+
+    private record BagCase(MaximumValueBag.BagObject[] objects, int C) {
+    }
+}
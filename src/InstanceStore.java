@@ -0,0 +1,305 @@
+/**
+ * Persistent store of the generated instances and of their results
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.*;
+
+public class InstanceStore implements AutoCloseable {
+    /**
+     * The launches only store their instances when the JVM is started with -Dstore=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("store");
+
+    /**
+     * folder of the stores
+     */
+    private static final Path FOLDER = Path.of("./data/store");
+
+    /**
+     * the index is stored in columns, one file per field, so that reading a field does not touch the others
+     */
+    private static final String[] COLUMNS = {"offset", "length", "problem", "d0", "d1", "g", "v"};
+    private static final int OFFSET = 0, LENGTH = 1, PROBLEM = 2, D0 = 3, D1 = 4, G = 5, V = 6;
+
+    /**
+     * minimal size of the part of the segment mapped at once for the reads
+     */
+    private static final long WINDOW = 64L << 20;
+
+    /**
+     * the ints of all the instances, one after the other
+     */
+    private final FileChannel segment;
+
+    /**
+     * one file per column of the index, the column v being written last
+     */
+    private final FileChannel[] columns;
+
+    /**
+     * columns mapped for the reads, they hold the first mapped_count entries
+     */
+    private final ByteBuffer[] mapped = new ByteBuffer[COLUMNS.length];
+    private int mapped_count = 0;
+
+    /**
+     * part of the segment mapped for the reads, starting at the offset window_start
+     */
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long window_start = 0;
+
+    private InstanceStore(FileChannel segment, FileChannel[] columns) {
+        this.segment = segment;
+        this.columns = columns;
+    }
+
+    public static void main(String[] args) {
+        // replays a store: every instance is solved again and checked against the stored optimum
+        try (InstanceStore store = open(args[0])) {
+            long start_time = System.nanoTime();
+            int errors = 0;
+
+            for (int i = 0; i < store.count(); i++) {
+                Entry entry = store.get(i);
+                if (entry.v() != entry.solve()) errors++;
+            }
+
+            long elapsed_time = System.nanoTime() - start_time;
+
+            System.out.printf("Replayed %d instances, %d different results", store.count(), errors);
+            System.out.println();
+            System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        }
+    }
+
+    /**
+     * Open (or create) a store
+     * @param name name of the store in the data folder
+     * @return the store
+     */
+    public static InstanceStore open(String name) {
+        try {
+            Files.createDirectories(FOLDER);
+
+            FileChannel[] columns = new FileChannel[COLUMNS.length];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = FileChannel.open(FOLDER.resolve(name + "." + COLUMNS[c]), CREATE, READ, WRITE);
+            }
+
+            return new InstanceStore(FileChannel.open(FOLDER.resolve(name + ".seg"), CREATE, READ, WRITE), columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append an instance and its results at the end of the store
+     * @param problem problem of the instance
+     * @param d0 first dimension of the instance
+     * @param d1 second dimension of the instance
+     * @param payload data of the instance
+     * @param g result of the greedy strategy
+     * @param v result of the optimised strategy
+     */
+    public void append(SolverPlanner.Problem problem, int d0, int d1, int[] payload, int g, int v) {
+        try {
+            long offset = segment.size();
+
+            ByteBuffer data = ByteBuffer.allocate(payload.length * Integer.BYTES).order(ByteOrder.nativeOrder());
+            data.asIntBuffer().put(payload);
+            segment.write(data, offset);
+
+            int i = count();
+            ByteBuffer value = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder());
+            columns[OFFSET].write(value.putLong(0, offset), (long) i * Long.BYTES);
+
+            int[] fields = {payload.length, problem.ordinal(), d0, d1, g, v};
+            for (int c = LENGTH; c < COLUMNS.length; c++) {
+                columns[c].write(value.clear().limit(Integer.BYTES).putInt(0, fields[c - LENGTH]), (long) i * Integer.BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of instances in the store
+     */
+    public int count() {
+        try {
+            return (int) (columns[V].size() / Integer.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read an instance, its data is mapped and not copied
+     * @param i number of the instance
+     * @return the instance
+     */
+    public Entry get(int i) {
+        if (i >= mapped_count) map(count());
+
+        long offset = mapped[OFFSET].getLong(i * Long.BYTES);
+        int length = mapped[LENGTH].getInt(i * Integer.BYTES);
+        SolverPlanner.Problem problem = SolverPlanner.Problem.values()[mapped[PROBLEM].getInt(i * Integer.BYTES)];
+
+        return new Entry(problem, mapped[D0].getInt(i * Integer.BYTES), mapped[D1].getInt(i * Integer.BYTES),
+                payload(offset, length), mapped[G].getInt(i * Integer.BYTES), mapped[V].getInt(i * Integer.BYTES));
+    }
+
+    /**
+     * Read the results of all the instances, only the columns g and v are mapped
+     * @return results[i] = {g, v} of the instance i
+     */
+    public int[][] results() {
+        try {
+            int count = count();
+            long bytes = (long) count * Integer.BYTES;
+            ByteBuffer g = columns[G].map(FileChannel.MapMode.READ_ONLY, 0, bytes).order(ByteOrder.nativeOrder());
+            ByteBuffer v = columns[V].map(FileChannel.MapMode.READ_ONLY, 0, bytes).order(ByteOrder.nativeOrder());
+
+            int[][] results = new int[count][];
+            for (int i = 0; i < count; i++) results[i] = new int[]{g.getInt(i * Integer.BYTES), v.getInt(i * Integer.BYTES)};
+
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Map the columns again, once for all the entries written so far
+     * @param count number of entries in the store
+     */
+    private void map(int count) {
+        try {
+            for (int c = 0; c < COLUMNS.length; c++) {
+                long bytes = (long) count * (c == OFFSET ? Long.BYTES : Integer.BYTES);
+                mapped[c] = columns[c].map(FileChannel.MapMode.READ_ONLY, 0, bytes).order(ByteOrder.nativeOrder());
+            }
+
+            mapped_count = count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Give the data of an instance as a view of the mapped window of the segment,
+     * the window is only moved when the data is out of it, which is rare when the instances are read in order
+     * @param offset position of the data in the segment
+     * @param length number of ints of the data
+     * @return the data
+     */
+    private IntBuffer payload(long offset, int length) {
+        long bytes = (long) length * Integer.BYTES;
+
+        if (offset < window_start || offset + bytes > window_start + window.capacity()) {
+            try {
+                long size = Math.min(Math.max(WINDOW, bytes), segment.size() - offset);
+                window = segment.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.nativeOrder());
+                window_start = offset;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return window.slice((int) (offset - window_start), (int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    @Override
+    public void close() {
+        try {
+            segment.close();
+            for (FileChannel column : columns) column.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Put several tables one after the other
+     * @param tables tables of the same dimensions
+     * @return the values of the tables, line by line
+     */
+    public static int[] flatten(int[][]... tables) {
+        int L = tables[0].length, C = L == 0 ? 0 : tables[0][0].length;
+        int[] flat = new int[tables.length * L * C];
+
+        for (int t = 0; t < tables.length; t++)
+            for (int l = 0; l < L; l++)
+                System.arraycopy(tables[t][l], 0, flat, (t * L + l) * C, C);
+
+        return flat;
+    }
+
+    /**
+     * Read back a table written by {@link #flatten}
+     * @param flat the flattened tables
+     * @param t number of the table to read
+     * @param L number of lines of the table
+     * @param C number of columns of the table
+     * @return the table
+     */
+    public static int[][] unflatten(IntBuffer flat, int t, int L, int C) {
+        int[][] table = new int[L][C];
+        for (int l = 0; l < L; l++) flat.get((t * L + l) * C, table[l]);
+        return table;
+    }
+
+    /**
+     * An instance of the store
+     *
+     * @param problem problem of the instance
+     * @param d0      first dimension of the instance
+     * @param d1      second dimension of the instance
+     * @param payload data of the instance
+     * @param g       stored result of the greedy strategy
+     * @param v       stored result of the optimised strategy
+     */
+    public record Entry(SolverPlanner.Problem problem, int d0, int d1, IntBuffer payload, int g, int v) {
+        /**
+         * Solve the instance again with the optimised strategy
+         * @return the optimum of the instance
+         */
+        public int solve() {
+            return switch (problem) {
+                case BAG -> {
+                    // d0 objects, d1 capacity, the sizes then the values
+                    MaximumValueBag.BagObject[] objects = new MaximumValueBag.BagObject[d0];
+                    for (int i = 0; i < d0; i++) objects[i] = new MaximumValueBag.BagObject(payload.get(i), payload.get(d0 + i));
+                    yield MaximumValueBag.calculerM(objects, d1)[d0][d1];
+                }
+                case TRIANGLE -> {
+                    int[] T = new int[payload.capacity()];
+                    payload.get(0, T);
+                    yield MaximumPathTriangle.calculerM(T)[0];
+                }
+                case ROBOT -> MinimumPathRobot.calculerM(
+                        unflatten(payload, 0, d0, d1),
+                        unflatten(payload, 1, d0, d1),
+                        unflatten(payload, 2, d0, d1)
+                )[d0 - 1][d1 - 1];
+                case PLANNING -> OptimalPlanning.calculerMA(unflatten(payload, 0, d0, d1))[0][d0][d1 - 1];
+                case WAREHOUSE -> OptimalWarehouse.calculerMA(unflatten(payload, 0, d0, d1))[d0][d1 - 1];
+            };
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Engine keeping the k best partial paths of every cell of a dynamic programming table
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.util.Arrays;
+
+public class KBestPaths {
+    /**
+     * number of entries (9 bytes each) kept by {@link #trim} between two tables
+     */
+    private static final int RETAINED_ENTRIES = 1 << 20;
+
+    /**
+     * number of paths kept for each cell
+     */
+    private int k;
+
+    /**
+     * value[cell * k + r] is the value of the r-th best path ending on the cell (ascending order)
+     */
+    private int[] value = new int[0];
+
+    /**
+     * from[cell * k + r] is the entry of the predecessor the path comes from, -1 for a base cell
+     */
+    private int[] from = new int[0];
+
+    /**
+     * move[cell * k + r] is the code of the move done to leave the predecessor
+     */
+    private byte[] move = new byte[0];
+
+    /**
+     * number of paths actually known for each cell (at most k)
+     */
+    private int[] count = new int[0];
+
+    /**
+     * primitive binary heap used to merge the sorted lists of the predecessors
+     */
+    private long[] heap = new long[4];
+
+    /**
+     * Prepare the engine for a new table, the buffers are only reallocated when they are too small
+     * @param cells number of cells of the table
+     * @param k number of paths to keep for each cell
+     */
+    public void reset(int cells, int k) {
+        if (k < 1 || k > 0xFFFFFF) throw new IllegalArgumentException("k must be in [1, 2^24[");
+
+        this.k = k;
+        int entries = Math.multiplyExact(cells, k);
+
+        if (value.length < entries) {
+            value = new int[entries];
+            from = new int[entries];
+            move = new byte[entries];
+        }
+
+        if (count.length < cells) count = new int[cells];
+        else Arrays.fill(count, 0, cells, 0);
+    }
+
+    /**
+     * Release the buffers if they are larger than what is kept between two tables,
+     * so that a single call with a large table or a large k does not hold its memory for the lifetime of the thread
+     */
+    public void trim() {
+        if (value.length > RETAINED_ENTRIES) {
+            value = new int[0];
+            from = new int[0];
+            move = new byte[0];
+        }
+
+        if (count.length > RETAINED_ENTRIES) count = new int[0];
+    }
+
+    /**
+     * Declare a base cell, reached by a single empty path
+     * @param cell the base cell
+     * @param v value of the empty path
+     */
+    public void seed(int cell, int v) {
+        int entry = cell * k;
+        value[entry] = v;
+        from[entry] = -1;
+        count[cell] = 1;
+    }
+
+    /**
+     * Compute the k smallest paths of a cell from the lists of its predecessors
+     * (the predecessors must have been computed before)
+     * @param cell the cell to compute
+     * @param preds predecessors of the cell
+     * @param costs cost of the move from each predecessor to the cell
+     * @param moves code of the move from each predecessor to the cell
+     * @param n number of predecessors to use
+     */
+    public void combine(int cell, int[] preds, int[] costs, byte[] moves, int n) {
+        if (n > 0xFF) throw new IllegalArgumentException("too many predecessors");
+        if (heap.length < n) heap = new long[n];
+
+        // each predecessor gives a sorted list, we push the head of each list in the heap
+        int size = 0;
+        for (int j = 0; j < n; j++) {
+            if (count[preds[j]] == 0) continue;
+            size = push(size, value[preds[j] * k] + costs[j], j, 0);
+        }
+
+        int base = cell * k;
+        int taken = 0;
+
+        // k-way merge: the smallest remaining head is popped and replaced by the next value of its list
+        while (size > 0 && taken < k) {
+            long top = heap[0];
+            size = pop(size);
+
+            int j = (int) (top >>> 24) & 0xFF;
+            int r = (int) top & 0xFFFFFF;
+            int p = preds[j];
+
+            value[base + taken] = (int) (top >> 32);
+            from[base + taken] = p * k + r;
+            move[base + taken] = moves[j];
+            taken++;
+
+            if (r + 1 < count[p]) size = push(size, value[p * k + r + 1] + costs[j], j, r + 1);
+        }
+
+        count[cell] = taken;
+    }
+
+    /**
+     * @param cell a cell of the table
+     * @return how many paths are known for the cell
+     */
+    public int size(int cell) {
+        return count[cell];
+    }
+
+    /**
+     * @param cell a cell of the table
+     * @param rank rank of the path, 0 being the best one
+     * @return value of the path
+     */
+    public int value(int cell, int rank) {
+        return value[cell * k + rank];
+    }
+
+    /**
+     * Rebuild the sequence of moves of a path by following the predecessors
+     * @param cell the cell on which the path ends
+     * @param rank rank of the path, 0 being the best one
+     * @param names name of each move code
+     * @param reversed true if the moves must be given from the base cell to the requested cell
+     * @return the moves, separated by spaces
+     */
+    public String moves(int cell, int rank, String[] names, boolean reversed) {
+        // the predecessors give the moves from the end, they are collected then written once in the requested order
+        int length = 0;
+        for (int entry = cell * k + rank; from[entry] != -1; entry = from[entry]) length++;
+
+        byte[] codes = new byte[length];
+        int i = 0;
+        for (int entry = cell * k + rank; from[entry] != -1; entry = from[entry]) codes[i++] = move[entry];
+
+        StringBuilder builder = new StringBuilder();
+        for (int j = 0; j < length; j++) {
+            if (j > 0) builder.append(' ');
+            builder.append(names[codes[reversed ? length - 1 - j : j]]);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Rebuild all the paths known for a cell
+     * @param cell the cell on which the paths end
+     * @param names name of each move code
+     * @param reversed true if the moves must be given from the base cell to the requested cell
+     * @param sign 1 to keep the values, -1 if the values were negated to find the longest paths
+     * @return the paths, from the best to the worst
+     */
+    public Path[] paths(int cell, String[] names, boolean reversed, int sign) {
+        Path[] paths = new Path[size(cell)];
+
+        for (int r = 0; r < paths.length; r++) {
+            paths[r] = new Path(sign * value(cell, r), moves(cell, r, names, reversed));
+        }
+
+        return paths;
+    }
+
+    /**
+     * Add a candidate in the heap. The candidate is packed in a long so that the natural order of the longs
+     * is the order of the values: value on the 32 upper bits, predecessor on 8 bits and rank on 24 bits
+     * @return the new size of the heap
+     */
+    private int push(int size, int v, int j, int r) {
+        long key = ((long) v << 32) | ((long) j << 24) | r;
+        int i = size;
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+
+        heap[i] = key;
+        return size + 1;
+    }
+
+    /**
+     * Remove the smallest candidate of the heap
+     * @return the new size of the heap
+     */
+    private int pop(int size) {
+        long last = heap[--size];
+        int i = 0;
+
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= last) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+
+        if (size > 0) heap[i] = last;
+        return size;
+    }
+
+    /**
+     * One of the k best paths of a problem
+     *
+     * @param value value of the path
+     * @param moves moves of the path, separated by spaces
+     */
+    public record Path(int value, String moves) {
+    }
+}
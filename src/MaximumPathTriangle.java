@@ -7,6 +7,7 @@
  * Created with Java 18
  **/
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -23,20 +24,38 @@ public class MaximumPathTriangle {
      */
     public static final int VMAX = 50;
 
+    /**
+     * Name of the moves of a path: to the left descendant or to the right descendant
+     */
+    private static final String[] MOVES = {"g", "d"};
+
+    /**
+     * Engine reused between the calls of the same thread to avoid reallocating its buffers (only the small ones are kept)
+     */
+    private static final ThreadLocal<KBestPaths> ENGINE = ThreadLocal.withInitial(KBestPaths::new);
+
     public static void main(String[] args) {
-        double[] data = launch(5_000 * 2);
-        Utils.export_data("maximum_path_triangle", data);
+        // the JIT compiles the solvers before the measured runs
+        if (WarmUp.ENABLED) WarmUp.run("triangle");
+
+        var stats = launch(5_000 * 2);
+        Utils.export_stats("maximum_path_triangle", stats);
+
+        Metrics.export("metrics_maximum_path_triangle");
     }
 
     /**
      * Launch the different strategies and review the results data
      * @param run_limit number of runs to make
-     * @return the relative distances
+     * @return the statistics of the relative distances
      */
-    public static double[] launch(int run_limit) {
+    public static StreamingStats launch(int run_limit) {
         // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
         Random rand = ThreadLocalRandom.current();
-        double[] data = new double[run_limit];
+        StreamingStats stats = new StreamingStats();
+
+        // the instances are kept in the store to be replayed later
+        InstanceStore store = InstanceStore.ENABLED ? InstanceStore.open("maximum_path_triangle") : null;
 
         long start_time = System.nanoTime();
 
@@ -44,39 +63,54 @@ public class MaximumPathTriangle {
             System.out.printf("--- Run number #%d ---", run + 1);
             System.out.println();
 
-            int l = rand.nextInt(LMAX) + 1;
-            System.out.printf("Levels: %d", l);
-            System.out.println();
+            stats.add(run(rand, store));
+            Utils.print_summary(run + 1, stats);
+        }
 
-            // calculation of the number of values to fill all the levels
-            int values = (int)(0.5 * l * (l + 1));
-            System.out.printf("Number of values: %d", values);
+        long elapsed_time = System.nanoTime() - start_time;
 
-            // triangle's data
-            int[] T = new int[values];
+        if (store != null) store.close();
 
-            for (int i = 0; i < values; i++) {
-                T[i] = rand.nextInt(VMAX);
-            }
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
 
-            // applies the naive strategy to sort objects
-            int g = glouton(T, l);
+        return stats;
+    }
 
-            // apply optimised strategy
-            int[] M = calculerM(T);
-            int v = M[0];
+    /**
+     * Make one run: generate an instance, apply the strategies and compare them
+     * @param rand PRNG used to generate the instance
+     * @param store store receiving the instance, null if the instances are not kept
+     * @return the relative distance between the strategies
+     */
+    public static double run(Random rand, InstanceStore store) {
+        int l = rand.nextInt(LMAX) + 1;
+        System.out.printf("Levels: %d", l);
+        System.out.println();
 
-            Utils.print_result(g, v);
+        // calculation of the number of values to fill all the levels
+        int values = (int)(0.5 * l * (l + 1));
+        System.out.printf("Number of values: %d", values);
 
-            data[run] = v == 0 ? 0 : (double) (v - g) / (double) v;
+        // triangle's data
+        int[] T = new int[values];
+
+        for (int i = 0; i < values; i++) {
+            T[i] = rand.nextInt(VMAX);
         }
 
-        long elapsed_time = System.nanoTime() - start_time;
+        // applies the naive strategy to sort objects
+        int g = glouton(T, l);
 
-        System.out.println();
-        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        // apply optimised strategy
+        int[] M = calculerM(T);
+        int v = M[0];
+
+        if (store != null) store.append(SolverPlanner.Problem.TRIANGLE, l, 0, T, g, v);
 
-        return data;
+        Utils.print_result(g, v);
+
+        return v == 0 ? 0 : (double) (v - g) / (double) v;
     }
 
     /**
@@ -86,6 +120,8 @@ public class MaximumPathTriangle {
      * @return sum of the maximum path taken
      */
     public static int glouton(int[] data, int max_level) {
+        long probe = Metrics.start();
+
         int i = 0;
         // the first node is always part of the path
         int sum = data[0];
@@ -106,6 +142,8 @@ public class MaximumPathTriangle {
             sum += max;
         }
 
+        Metrics.record(Metrics.Solver.TRIANGLE_GLOUTON, probe, data.length, max_level);
+
         return sum;
     }
 
@@ -115,27 +153,123 @@ public class MaximumPathTriangle {
      * @return the resolution array
      */
     public static int[] calculerM(int[] T){
+        long probe = Metrics.start();
+
         int[] M = new int[T.length];
 
-        // On commence par le bas du triangle pour ensuite remonter
-        for(int i = T.length - 1; i >= 0; i--){
-            // On regarde si on sort du triangle.
-            // Si oui, on est alors sur une feuille
-            if(g(i) >= T.length){
-                M[i] = T[i];
-            } else {
-                // Sinon on est sur un nœud qui n'est pas une feuille
-                // il faut alors prendre en compte le sous-problème de la somme du triangle de
-                // gauche et de celle du triangle de droite auquel on additionnera le poids du nœud actuel.
-                // On sélectionnera le plus grand sous-problème
-                // m(i) = max(m(g(i)), m(d(i))) + T[i]
-                M[i] = Math.max(M[g(i)], M[d(i)]) + T[i];
-            }
+        // nombre de niveaux du triangle
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+
+        // Les feuilles sont le dernier niveau : m(i) = T[i]
+        int leaves = (L - 1) * L / 2;
+        System.arraycopy(T, leaves, M, leaves, T.length - leaves);
+
+        // On remonte ensuite niveau par niveau. Les descendants de la position p du niveau l
+        // sont les positions p et p + 1 du niveau l + 1, donc chaque niveau se calcule d'un bloc
+        // à partir du niveau inférieur : m(i) = max(m(g(i)), m(d(i))) + T[i].
+        // Les niveaux sont calculés dans deux lignes distinctes puis recopiés dans M
+        int[] below = Arrays.copyOfRange(T, leaves, T.length);
+        int[] row = new int[Math.max(L, 1)];
+
+        for (int l = L - 2; l >= 0; l--) {
+            RowKernels.maxPairAdd(below, T, l * (l + 1) / 2, row, l + 1);
+            System.arraycopy(row, 0, M, l * (l + 1) / 2, l + 1);
+
+            int[] swap = below;
+            below = row;
+            row = swap;
         }
 
+        Metrics.record(Metrics.Solver.TRIANGLE_DP, probe, T.length, T.length);
+
         return M;
     }
 
+    /**
+     * Apply the optimal strategy within the limits of a context
+     * @param T triangle's data
+     * @param context time budget and cancellation of the resolution
+     * @return the optimum if the resolution went to the end, its best known bounds otherwise
+     */
+    public static SolveContext.Bound solveWithin(int[] T, SolveContext context) {
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+
+        int lower = glouton(T, L);
+
+        // only the level below is needed
+        int leaves = (L - 1) * L / 2;
+        int[] below = Arrays.copyOfRange(T, leaves, T.length);
+        int[] row = new int[Math.max(L, 1)];
+
+        for (int l = L - 2; l >= 0; l--) {
+            if (context.expired()) {
+                // the level l + 1 is known, the path can at best take the highest value of each level above
+                int upper = Arrays.stream(below, 0, l + 2).max().getAsInt();
+
+                for (int j = 0; j <= l; j++) {
+                    upper += Arrays.stream(T, j * (j + 1) / 2, (j + 1) * (j + 2) / 2).max().getAsInt();
+                }
+
+                return new SolveContext.Bound(lower, upper);
+            }
+
+            RowKernels.maxPairAdd(below, T, l * (l + 1) / 2, row, l + 1);
+
+            int[] swap = below;
+            below = row;
+            row = swap;
+        }
+
+        // an empty triangle has no level
+        int v = below.length > 0 ? below[0] : 0;
+        return new SolveContext.Bound(v, v);
+    }
+
+    /**
+     * Apply the optimal strategy, keeping the k best paths instead of the best one only
+     * @param T triangle's data
+     * @param k number of paths to find
+     * @return the k best paths from the top of the triangle, from the best to the worst
+     */
+    public static KBestPaths.Path[] calculerTopK(int[] T, int k) {
+        KBestPaths engine = ENGINE.get();
+        engine.reset(T.length, k);
+
+        // the engine keeps the smallest values, so the weights are negated to find the longest paths
+        int[] preds = new int[2];
+        int[] costs = new int[2];
+        byte[] moves = {0, 1};
+
+        // number of levels of the triangle
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+
+        // the leaves are the last level
+        for (int i = (L - 1) * L / 2; i < T.length; i++) engine.seed(i, -T[i]);
+
+        // then we go up level by level, the descendants of the position p of the level l
+        // are the positions p and p + 1 of the level l + 1
+        for (int l = L - 2; l >= 0; l--) {
+            int start = l * (l + 1) / 2;
+            int below = (l + 1) * (l + 2) / 2;
+
+            for (int p = 0; p <= l; p++) {
+                preds[0] = below + p;
+                preds[1] = below + p + 1;
+                costs[0] = costs[1] = -T[start + p];
+
+                engine.combine(start + p, preds, costs, moves, 2);
+            }
+        }
+
+        KBestPaths.Path[] paths = engine.paths(0, MOVES, false, -1);
+        engine.trim();
+
+        return paths;
+    }
+
     /**
      * Return the index of the left descendant of the parent index
      * @param i parent index
@@ -35,26 +35,39 @@ public class MaximumValueBag {
      */
     public static final int SMAX = 50;
 
+    /**
+     * largest number of bits of the table of the chosen objects in the FPTAS (512 MiB)
+     */
+    static final long FPTAS_MAX_BITS = 1L << 32;
+
     public static void main(String[] args) {
-        var data_ratio = launch(5000, GloutonStrategy.BY_RATIO);
-        Utils.export_data("maximum_value_bag_ratio", data_ratio);
+        // the JIT compiles the solvers before the measured runs
+        if (WarmUp.ENABLED) WarmUp.run("bag");
+
+        var stats_ratio = launch(5000, GloutonStrategy.BY_RATIO);
+        Utils.export_stats("maximum_value_bag_ratio", stats_ratio);
+
+        var stats_value = launch(5000, GloutonStrategy.BY_VALUE);
+        Utils.export_stats("maximum_value_bag_value", stats_value);
 
-        var data_value = launch(5000, GloutonStrategy.BY_VALUE);
-        Utils.export_data("maximum_value_bag_value", data_value);
+        var stats_size = launch(5000, GloutonStrategy.BY_SIZE);
+        Utils.export_stats("maximum_value_bag_size", stats_size);
 
-        var data_size = launch(5000, GloutonStrategy.BY_SIZE);
-        Utils.export_data("maximum_value_bag_size", data_size);
+        Metrics.export("metrics_maximum_value_bag");
     }
 
     /**
      * Launch the different strategies and review the results data
      * @param run_limit number of runs to make
-     * @return the relative distances
+     * @return the statistics of the relative distances
      */
-    static double[] launch(int run_limit, GloutonStrategy strategy) {
+    static StreamingStats launch(int run_limit, GloutonStrategy strategy) {
         // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
         Random rand = ThreadLocalRandom.current();
-        double[] data = new double[run_limit];
+        StreamingStats stats = new StreamingStats();
+
+        // the instances are kept in the store to be replayed later, one store per strategy so that each g is tied to its strategy
+        InstanceStore store = InstanceStore.ENABLED ? InstanceStore.open("maximum_value_bag_" + strategy.name().toLowerCase()) : null;
 
         long start_time = System.nanoTime();
 
@@ -62,47 +75,73 @@ public class MaximumValueBag {
             System.out.printf("--- Run number #%d ---", run + 1);
             System.out.println();
 
-            int c = rand.nextInt(CMAX) + 1;
-            System.out.printf("Capacity of the bag: %d", c);
-            System.out.println();
+            stats.add(run(rand, store, strategy));
+            Utils.print_summary(run + 1, stats);
+        }
 
-            // 20 <= Number of objects <= 100
-            int n = 20 + rand.nextInt(NMAX - 20) + 1;
-            System.out.printf("Number of objects: %d", n);
-            System.out.println();
+        long elapsed_time = System.nanoTime() - start_time;
 
-            // create our list of objects
-            BagObject[] objects = new BagObject[n];
+        if (store != null) store.close();
 
-            // fill it
-            for (int i = 0; i < n; i++) {
-                objects[i] = BagObject.CreateRandomObject();
-            }
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
 
-            Comparator<BagObject> comparator = null;
+        return stats;
+    }
 
-            if (strategy == GloutonStrategy.BY_RATIO) comparator = Comparator.comparing(BagObject::ratio).reversed();
-            if (strategy == GloutonStrategy.BY_VALUE) comparator = Comparator.comparing(BagObject::value).reversed();
-            if (strategy == GloutonStrategy.BY_SIZE) comparator = Comparator.comparing(BagObject::size).reversed();
+    /**
+     * Make one run: generate an instance, apply the strategies and compare them
+     * @param rand PRNG used to generate the instance
+     * @param store store receiving the instance, null if the instances are not kept
+     * @param strategy naive strategy to apply
+     * @return the relative distance between the strategies
+     */
+    static double run(Random rand, InstanceStore store, GloutonStrategy strategy) {
+        int c = rand.nextInt(CMAX) + 1;
+        System.out.printf("Capacity of the bag: %d", c);
+        System.out.println();
 
-            // applies the naive strategy to sort objects
-            int g = glouton(objects, c, comparator);
+        // 20 <= Number of objects <= 100
+        int n = 20 + rand.nextInt(NMAX - 20) + 1;
+        System.out.printf("Number of objects: %d", n);
+        System.out.println();
 
-            // apply optimised strategy
-            int[][] M = calculerM(objects, c);
-            int v = M[n][c];
+        // create our list of objects
+        BagObject[] objects = new BagObject[n];
 
-            Utils.print_result(g, v);
+        // fill it
+        for (int i = 0; i < n; i++) {
+            objects[i] = BagObject.CreateRandomObject(rand);
+        }
 
-            data[run] = v == 0 ? 0 : (double) (v - g) / (double) v;
+        // the sizes then the values of the objects, in the generated order (glouton sorts them in place)
+        int[] payload = null;
+        if (store != null) {
+            payload = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                payload[i] = objects[i].size;
+                payload[n + i] = objects[i].value;
+            }
         }
 
-        long elapsed_time = System.nanoTime() - start_time;
+        Comparator<BagObject> comparator = null;
 
-        System.out.println();
-        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        if (strategy == GloutonStrategy.BY_RATIO) comparator = Comparator.comparing(BagObject::ratio).reversed();
+        if (strategy == GloutonStrategy.BY_VALUE) comparator = Comparator.comparing(BagObject::value).reversed();
+        if (strategy == GloutonStrategy.BY_SIZE) comparator = Comparator.comparing(BagObject::size).reversed();
+
+        // applies the naive strategy to sort objects
+        int g = glouton(objects, c, comparator);
+
+        // apply optimised strategy
+        int[][] M = calculerM(objects, c);
+        int v = M[n][c];
 
-        return data;
+        if (store != null) store.append(SolverPlanner.Problem.BAG, n, c, payload, g, v);
+
+        Utils.print_result(g, v);
+
+        return v == 0 ? 0 : (double) (v - g) / (double) v;
     }
 
     /**
@@ -112,6 +151,8 @@ public class MaximumValueBag {
      * @return the problem-solving matrix
      */
     static int[][] calculerM(BagObject[] objects, int C) {
+        long probe = Metrics.start();
+
         int n = objects.length;
         // Retourne M[0:n+1][0:C+1], de terme général M[k][c] = m(k,c)
         int[][] M = new int[n + 1][C + 1];
@@ -121,19 +162,258 @@ public class MaximumValueBag {
 
         // Cas général, pour tous k et c, 1 <= k < n+1, 0 <= c < C+1,
         // m(k,c) = max(M[k-1][c], V[k-1] + M[k-1][c-T[k-1]])
+        // la ligne M[k] se déduit de la ligne M[k-1] élément par élément, on délègue donc le calcul à un noyau
+        // sans branche : M[k][c] = M[k-1][c] tant que le k-ème objet est trop gros pour entrer dans le sac
+        for (int k = 1; k < n + 1; k++) {
+            RowKernels.maxShiftAdd(M[k - 1], M[k], objects[k - 1].size, objects[k - 1].value, C + 1);
+        }
+
+        Metrics.record(Metrics.Solver.BAG_DP, probe, n, (long) (n + 1) * (C + 1));
+
+        return M;
+    }
+
+    /**
+     * Apply the optimised strategy in a table out of the heap, for the instances whose table is too large for an array
+     * @param objects objects that can be chosen
+     * @param C max capacity of the bag
+     * @param M table of n+1 lines and C+1 columns receiving M[k][c] = m(k,c)
+     * @return the table M
+     */
+    static OffHeapTable calculerM(BagObject[] objects, int C, OffHeapTable M) {
+        int n = objects.length;
+        if (M.lines() != n + 1 || M.columns() != C + 1) throw new IllegalArgumentException("the table must be (n+1) x (C+1)");
+
+        // Base : m(0,c) = 0, la table est initialisée à 0
+
+        // Cas général : m(k,c) = max(M[k-1][c], V[k-1] + M[k-1][c-T[k-1]])
         for (int k = 1; k < n + 1; k++) {
+            int size = objects[k - 1].size, value = objects[k - 1].value;
+
             for (int c = 0; c < C + 1; c++) {
-                // calcul et mémorisation de m(k,c)
-                if (c - objects[k - 1].size < 0) // le k-ème objet est trop gros pour entrer dans le sac
-                    M[k][c] = M[k - 1][c];
-                else
-                    M[k][c] = Math.max(M[k - 1][c], objects[k - 1].value + M[k - 1][c - objects[k - 1].size]);
+                if (c - size < 0) M.set(k, c, M.get(k - 1, c));
+                else M.set(k, c, Math.max(M.get(k - 1, c), value + M.get(k - 1, c - size)));
             }
         }
 
         return M;
     }
 
+    /**
+     * Apply the optimised strategy within the limits of a context
+     * @param objects objects that can be chosen (the array is not modified)
+     * @param C max capacity of the bag
+     * @param context time budget and cancellation of the resolution
+     * @return the optimum if the resolution went to the end, its best known bounds otherwise
+     */
+    static SolveContext.Bound solveWithin(BagObject[] objects, int C, SolveContext context) {
+        int n = objects.length;
+        BagObject[] sorted = objects.clone();
+
+        // lower bound: greedy by ratio, or the best object alone (at least half the optimum)
+        int lower = glouton(sorted, C, Comparator.comparing(BagObject::ratio).reversed());
+        for (BagObject object : objects) if (object.size <= C) lower = Math.max(lower, object.value);
+
+        // upper bound: the relaxation where the last object can be split
+        int upper = relaxation(sorted, C);
+
+        // the dynamic programming is done line by line, M[k][C] is the optimum on the k first objects
+        int[] prev = new int[C + 1];
+        int[] cur = new int[C + 1];
+
+        for (int k = 1; k < n + 1; k++) {
+            if (context.expired()) {
+                // the remaining objects can at best add their relaxation
+                BagObject[] remaining = Arrays.copyOfRange(objects, k - 1, n);
+                Arrays.sort(remaining, Comparator.comparing(BagObject::ratio).reversed());
+
+                return new SolveContext.Bound(Math.max(lower, prev[C]), Math.min(upper, prev[C] + relaxation(remaining, C)));
+            }
+
+            RowKernels.maxShiftAdd(prev, cur, objects[k - 1].size, objects[k - 1].value, C + 1);
+
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+
+        return new SolveContext.Bound(prev[C], prev[C]);
+    }
+
+    /**
+     * Value of the bag when the objects can be split (the last object taken is split to fill the bag)
+     * @param sorted objects, in descending order of ratio
+     * @param capacity bag capacity limit
+     * @return an upper bound of the value of the bag
+     */
+    static int relaxation(BagObject[] sorted, int capacity) {
+        int sum = 0;
+
+        for (BagObject object : sorted) {
+            if (capacity >= object.size) {
+                capacity -= object.size;
+                sum += object.value;
+            } else {
+                sum += (int) ((long) object.value * capacity / object.size);
+                break;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Apply the optimised strategy when each object is available in several copies
+     * @param objects objects that can be chosen
+     * @param counts counts[i] is the number of copies of objects[i]
+     * @param C max capacity of the bag
+     * @return the maximum value of the bag
+     */
+    static int calculerMBounded(BagObject[] objects, int[] counts, int C) {
+        // only the last line of M is needed, two lines are enough
+        int[] prev = new int[C + 1];
+        int[] cur = new int[C + 1];
+
+        // the m copies of an object are split in lots of 1, 2, 4, ..., and a remainder:
+        // any number of copies between 0 and m is a sum of distinct lots, so the problem becomes
+        // a 0/1 problem on O(log m) lots per object instead of m copies
+        for (int i = 0; i < objects.length; i++) {
+            int remaining = counts[i];
+
+            for (int lot = 1; remaining > 0; lot *= 2) {
+                int q = Math.min(lot, remaining);
+                remaining -= q;
+
+                long size = (long) q * objects[i].size;
+                if (size > C) continue;
+
+                RowKernels.maxShiftAdd(prev, cur, (int) size, q * objects[i].value, C + 1);
+
+                int[] swap = prev;
+                prev = cur;
+                cur = swap;
+            }
+        }
+
+        return prev[C];
+    }
+
+    /**
+     * Apply the optimised strategy with a second capacity (volume) and several copies of each object
+     * @param objects objects that can be chosen
+     * @param volumes volumes[i] is the volume of objects[i]
+     * @param counts counts[i] is the number of copies of objects[i]
+     * @param C max capacity of the bag
+     * @param V max volume of the bag
+     * @return the maximum value of the bag
+     */
+    static int calculerM2D(BagObject[] objects, int[] volumes, int[] counts, int C, int V) {
+        // M[c * (V + 1) + v] = best value with a capacity c and a volume v, updated in place object after object
+        int[] M = new int[Math.multiplyExact(C + 1, V + 1)];
+
+        for (int i = 0; i < objects.length; i++) {
+            int remaining = counts[i];
+
+            // same splitting in lots as in calculerMBounded
+            for (int lot = 1; remaining > 0; lot *= 2) {
+                int q = Math.min(lot, remaining);
+                remaining -= q;
+
+                long size = (long) q * objects[i].size;
+                long volume = (long) q * volumes[i];
+                if (size > C || volume > V) continue;
+
+                int value = q * objects[i].value;
+
+                // by decreasing capacities and volumes so that each lot is taken at most once
+                for (int c = C; c >= size; c--) {
+                    int line = c * (V + 1);
+                    int shifted = (c - (int) size) * (V + 1) - (int) volume;
+
+                    for (int v = V; v >= volume; v--) {
+                        M[line + v] = Math.max(M[line + v], M[shifted + v] + value);
+                    }
+                }
+            }
+        }
+
+        return M[M.length - 1];
+    }
+
+    /**
+     * Apply the approximation scheme: the values are scaled down so that a dynamic programming indexed by value
+     * runs in O(n^3 / epsilon), whatever the capacity of the bag
+     * @param objects objects that can be chosen
+     * @param C max capacity of the bag
+     * @param epsilon tolerated relative error, between 0 (excluded) and 1
+     * @return a value at least (1 - epsilon) times the optimum, with its guaranteed ratio
+     * @throws IllegalArgumentException if epsilon is not in ]0, 1[, or if it is so small that the tables are too large
+     */
+    static Approximation calculerFPTAS(BagObject[] objects, int C, double epsilon) {
+        if (epsilon <= 0 || epsilon >= 1) throw new IllegalArgumentException("epsilon must be in ]0, 1[");
+
+        // objects bigger than the bag can never be chosen
+        BagObject[] fitting = Arrays.stream(objects).filter(object -> object.size <= C).toArray(BagObject[]::new);
+        int n = fitting.length;
+        if (n == 0) return new Approximation(0, 1);
+
+        // scaling factor K = epsilon * vmax / n, below 1 the values are kept as is and the result is exact
+        int vmax = Arrays.stream(fitting).mapToInt(BagObject::value).max().getAsInt();
+        double K = Math.max(1, epsilon * vmax / n);
+
+        int[] scaled = new int[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (int) (fitting[i].value / K);
+            total += scaled[i];
+        }
+
+        // P <= n^2 / epsilon: with large values and a small epsilon, the tables no longer fit
+        if ((double) n * (total + 1) > FPTAS_MAX_BITS) {
+            throw new IllegalArgumentException("the table of the FPTAS would have %d x %d cells, epsilon is too small for these values"
+                    .formatted(n, total + 1));
+        }
+        int P = (int) total;
+
+        // S[p] = smallest size reaching the scaled value p with the objects seen so far,
+        // sizes greater than C are useless and all stored as INF
+        final int INF = Integer.MAX_VALUE;
+        int[] S = new int[P + 1];
+        Arrays.fill(S, INF);
+        S[0] = 0;
+
+        // bit i * (P + 1) + p is set when the object i improves S[p], to rebuild the chosen objects
+        long[] keep = new long[Math.toIntExact(((long) n * (P + 1) + 63) >>> 6)];
+
+        for (int i = 0; i < n; i++) {
+            int sv = scaled[i], size = fitting[i].size;
+
+            // by decreasing p so that each object is taken at most once
+            for (int p = P; p >= sv; p--) {
+                if (S[p - sv] == INF || S[p - sv] + size > C || S[p - sv] + size >= S[p]) continue;
+
+                S[p] = S[p - sv] + size;
+                long bit = (long) i * (P + 1) + p;
+                keep[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        int p = P;
+        while (S[p] == INF) p--;
+
+        // we go back through the objects to sum their real values
+        int value = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            long bit = (long) i * (P + 1) + p;
+            if ((keep[(int) (bit >>> 6)] & (1L << bit)) == 0) continue;
+
+            value += fitting[i].value;
+            p -= scaled[i];
+        }
+
+        return new Approximation(value, K == 1 ? 1 : 1 - epsilon);
+    }
+
     /**
      * Apply the greedy strategy
      * @param objects  list of possible objects
@@ -141,6 +421,8 @@ public class MaximumValueBag {
      * @return the sum of the values of the items in the bag
      */
     static int glouton(BagObject[] objects, int capacity, Comparator<BagObject> comparator) {
+        long probe = Metrics.start();
+
         // sort the objects in descending order of ratio (from the most to the least interesting object to take)
         Arrays.sort(objects, comparator);
 
@@ -154,6 +436,8 @@ public class MaximumValueBag {
             sum += object.value;
         }
 
+        Metrics.record(Metrics.Solver.BAG_GLOUTON, probe, objects.length, objects.length);
+
         return sum;
     }
 
@@ -177,6 +461,26 @@ public class MaximumValueBag {
         BY_SIZE
     }
 
+    /**
+     * Result of an approximation
+     *
+     * @param value value of the bag found
+     * @param ratio guaranteed ratio between the value and the optimum
+     */
+    public record Approximation(int value, double ratio) {
+        /**
+         * @return the largest value the optimum can have
+         */
+        public int upperBound() {
+            return (int) Math.floor(value / ratio);
+        }
+
+        @Override
+        public String toString() {
+            return "Approximation{value=%d, ratio=%f, optimum<=%d}".formatted(value, ratio, upperBound());
+        }
+    }
+
     /**
      * Represents an object used in the problem
      *
@@ -190,8 +494,16 @@ public class MaximumValueBag {
          * @return the randomly created object
          */
         static BagObject CreateRandomObject() {
-            Random rand = ThreadLocalRandom.current();
+            return CreateRandomObject(ThreadLocalRandom.current());
+        }
 
+        /**
+         * Creates an object whose size and value are random
+         *
+         * @param rand PRNG used to generate the object
+         * @return the randomly created object
+         */
+        static BagObject CreateRandomObject(Random rand) {
             int size = rand.nextInt(SMAX) + 1;
             int value = rand.nextInt(VMAX) + 1;
 
@@ -0,0 +1,252 @@
+/**
+ * Instrumentation of the solvers: latencies, throughput, allocations and instance sizes
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Metrics {
+    /**
+     * The metrics are only collected when the JVM is started with -Dmetrics=true.
+     * The flag is a constant, so the JIT removes the probes entirely when it is false.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("metrics");
+
+    /**
+     * number of sub-buckets per power of two in the histograms
+     */
+    private static final int SUB_BUCKETS = 16;
+
+    /**
+     * number of buckets of the histograms, enough for any positive long
+     */
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    /**
+     * per-thread allocation counter of HotSpot, null if the JVM does not provide it
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    /**
+     * allocated bytes of the current thread at the beginning of the probe
+     */
+    private static final ThreadLocal<long[]> ALLOCATED = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * statistics of each solver
+     */
+    private static final Stats[] STATS = new Stats[Solver.values().length];
+
+    static {
+        for (Solver solver : Solver.values()) STATS[solver.ordinal()] = new Stats();
+    }
+
+    /**
+     * Begin a probe around a solver call
+     * @return the value to give to {@link #record}
+     */
+    public static long start() {
+        if (!ENABLED) return 0;
+
+        if (THREADS != null) ALLOCATED.get()[0] = THREADS.getCurrentThreadAllocatedBytes();
+        return System.nanoTime();
+    }
+
+    /**
+     * End a probe around a solver call
+     * @param solver the solver that has been called
+     * @param start value returned by {@link #start}
+     * @param size size of the instance (number of objects, of values, of cells of the grid...)
+     * @param cells number of cells computed by the solver
+     */
+    public static void record(Solver solver, long start, long size, long cells) {
+        if (!ENABLED) return;
+
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes() - ALLOCATED.get()[0];
+
+        Stats stats = STATS[solver.ordinal()];
+        stats.calls.incrementAndGet();
+        stats.nanos.addAndGet(elapsed);
+        stats.cells.addAndGet(cells);
+        stats.bytes.addAndGet(bytes);
+        stats.latency.incrementAndGet(bucket(elapsed));
+
+        // the latency is also accumulated by power of two of the instance size
+        int size_class = 63 - Long.numberOfLeadingZeros(Math.max(size, 1));
+        stats.size_calls.incrementAndGet(size_class);
+        stats.size_nanos.addAndGet(size_class, elapsed);
+
+        SolveEvent event = new SolveEvent();
+        if (event.isEnabled()) {
+            event.solver = solver.name();
+            event.size = size;
+            event.cells = cells;
+            event.bytes = bytes;
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Forget everything recorded so far, e.g. the calls made while warming up the JIT
+     */
+    public static void reset() {
+        for (Solver solver : Solver.values()) STATS[solver.ordinal()] = new Stats();
+    }
+
+    /**
+     * Export the metrics in the Prometheus text format, so that they can be scraped
+     * @param name name of the file to create in the data folder
+     */
+    public static void export(String name) {
+        if (!ENABLED) return;
+
+        try (FileWriter file = new FileWriter("./data/%s.prom".formatted(name))) {
+            for (Solver solver : Solver.values()) {
+                Stats stats = STATS[solver.ordinal()];
+                long calls = stats.calls.get();
+                if (calls == 0) continue;
+
+                String label = "{solver=\"%s\"}".formatted(solver.name().toLowerCase());
+                double seconds = stats.nanos.get() / 1e9;
+
+                // the values are written with Double.toString: a decimal point whatever the locale, and every significant digit
+                // (the latencies under the microsecond would be lost with %f)
+                file.append("solver_calls_total%s %d\n".formatted(label, calls));
+                file.append("solver_seconds_total%s %s\n".formatted(label, Double.toString(seconds)));
+                file.append("solver_cells_total%s %d\n".formatted(label, stats.cells.get()));
+                file.append("solver_cells_per_second%s %s\n".formatted(label, Double.toString(seconds == 0 ? 0 : stats.cells.get() / seconds)));
+                file.append("solver_allocated_bytes_total%s %d\n".formatted(label, stats.bytes.get()));
+
+                for (double q : new double[]{0.5, 0.9, 0.99, 0.999, 1}) {
+                    file.append("solver_latency_seconds{solver=\"%s\",quantile=\"%s\"} %s\n"
+                            .formatted(solver.name().toLowerCase(), q, Double.toString(stats.quantile(q) / 1e9)));
+                }
+
+                for (int c = 0; c < 64; c++) {
+                    long size_calls = stats.size_calls.get(c);
+                    if (size_calls == 0) continue;
+
+                    file.append("solver_size_class_seconds{solver=\"%s\",size_le=\"%d\"} %s\n"
+                            .formatted(solver.name().toLowerCase(), (2L << c) - 1, Double.toString(stats.size_nanos.get(c) / 1e9 / size_calls)));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gives the bucket of a value: the power of two of the value, refined by its next bits
+     * (the relative error is bounded by 1 / SUB_BUCKETS, like in HdrHistogram)
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) Math.max(value, 0);
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return (exponent - 3) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gives the lowest value of a bucket
+     */
+    private static long lowest(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + 3;
+        long sub = bucket % SUB_BUCKETS;
+        return (1L << exponent) | (sub << (exponent - 4));
+    }
+
+    /**
+     * @return the HotSpot thread bean if it can count the allocated bytes, null otherwise
+     */
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            return bean.isThreadAllocatedMemorySupported() ? bean : null;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Instrumented solvers
+     */
+    public enum Solver {
+        BAG_GLOUTON, BAG_DP,
+        TRIANGLE_GLOUTON, TRIANGLE_DP,
+        ROBOT_GLOUTON, ROBOT_DP,
+        PLANNING_GLOUTON, PLANNING_DP,
+        WAREHOUSE_GLOUTON, WAREHOUSE_DP,
+        DAG_DP
+    }
+
+    /**
+     * Statistics of one solver, safe to update from several threads
+     */
+    private static class Stats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicLong cells = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+        final AtomicLongArray size_calls = new AtomicLongArray(64);
+        final AtomicLongArray size_nanos = new AtomicLongArray(64);
+
+        /**
+         * @param q requested quantile, between 0 and 1
+         * @return the latency of the quantile in nanoseconds
+         */
+        long quantile(double q) {
+            long rank = (long) Math.ceil(q * calls.get());
+            long seen = 0;
+
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += latency.get(b);
+                if (seen >= rank && seen > 0) return lowest(b);
+            }
+
+            return 0;
+        }
+    }
+
+    /**
+     * JFR event emitted for each solver call when the metrics are enabled
+     */
+    @Name("igi.Solve")
+    @Label("Solver call")
+    @Category("IGI-2102")
+    static class SolveEvent extends Event {
+        @Label("Solver")
+        String solver;
+
+        @Label("Instance size")
+        long size;
+
+        @Label("Cells computed")
+        long cells;
+
+        @Label("Allocated bytes")
+        long bytes;
+
+        @Label("Elapsed time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
@@ -8,6 +8,7 @@
  * Created with Java 18
  **/
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -28,20 +29,38 @@ public class MinimumPathRobot {
      */
     public static final int VMAX = 200;
 
+    /**
+     * Name of the moves of a path
+     */
+    private static final String[] MOVES = {"E", "N", "NE"};
+
+    /**
+     * Engine reused between the calls of the same thread to avoid reallocating its buffers (only the small ones are kept)
+     */
+    private static final ThreadLocal<KBestPaths> ENGINE = ThreadLocal.withInitial(KBestPaths::new);
+
     public static void main(String[] args) {
-        var data = launch(10_000);
-        Utils.export_data("minimum_path_robot", data);
+        // the JIT compiles the solvers before the measured runs
+        if (WarmUp.ENABLED) WarmUp.run("robot");
+
+        var stats = launch(10_000);
+        Utils.export_stats("minimum_path_robot", stats);
+
+        Metrics.export("metrics_minimum_path_robot");
     }
 
     /**
      * Launch the different strategies and review the results data
      * @param run_limit number of runs to make
-     * @return the relative distances
+     * @return the statistics of the relative distances
      */
-    static double[] launch(int run_limit) {
+    static StreamingStats launch(int run_limit) {
         // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
         Random rand = ThreadLocalRandom.current();
-        double[] data = new double[run_limit];
+        StreamingStats stats = new StreamingStats();
+
+        // the instances are kept in the store to be replayed later
+        InstanceStore store = InstanceStore.ENABLED ? InstanceStore.open("minimum_path_robot") : null;
 
         long start_time = System.nanoTime();
 
@@ -49,37 +68,52 @@ public class MinimumPathRobot {
             System.out.printf("--- Run number #%d ---", run + 1);
             System.out.println();
 
-            // let's generate the dimensions of the problem grid at random
-            // one is added so that the grid cannot be zero sized
-            int L = rand.nextInt(LMAX) + 1;
-            int C = rand.nextInt(CMAX) + 1;
+            stats.add(run(rand, store));
+            Utils.print_summary(run + 1, stats);
+        }
 
-            System.out.printf("Grid dimension: %d x %d", L, C);
-            System.out.println();
+        long elapsed_time = System.nanoTime() - start_time;
 
-            // we generate our moving cost matrices (or grid)
-            int[][] N = generateGrid(L, C);
-            int[][] E = generateGrid(L, C);
-            int[][] NE = generateGrid(L, C);
+        if (store != null) store.close();
 
-            // apply the naive way
-            int g = glouton(N, E, NE);
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
 
-            // apply optimised strategy
-            int[][] M = calculerM(N, E, NE);
-            int v = M[L - 1][C - 1];
+        return stats;
+    }
 
-            Utils.print_result(g, v);
+    /**
+     * Make one run: generate an instance, apply the strategies and compare them
+     * @param rand PRNG used to generate the instance
+     * @param store store receiving the instance, null if the instances are not kept
+     * @return the relative distance between the strategies
+     */
+    static double run(Random rand, InstanceStore store) {
+        // let's generate the dimensions of the problem grid at random
+        // one is added so that the grid cannot be zero sized
+        int L = rand.nextInt(LMAX) + 1;
+        int C = rand.nextInt(CMAX) + 1;
 
-            data[run] = v == 0 ? 0 : (double) (g - v) / (double) v;
-        }
+        System.out.printf("Grid dimension: %d x %d", L, C);
+        System.out.println();
 
-        long elapsed_time = System.nanoTime() - start_time;
+        // we generate our moving cost matrices (or grid)
+        int[][] N = generateGrid(L, C, rand);
+        int[][] E = generateGrid(L, C, rand);
+        int[][] NE = generateGrid(L, C, rand);
 
-        System.out.println();
-        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        // apply the naive way
+        int g = glouton(N, E, NE);
+
+        // apply optimised strategy
+        int[][] M = calculerM(N, E, NE);
+        int v = M[L - 1][C - 1];
+
+        if (store != null) store.append(SolverPlanner.Problem.ROBOT, L, C, InstanceStore.flatten(N, E, NE), g, v);
 
-        return data;
+        Utils.print_result(g, v);
+
+        return v == 0 ? 0 : (double) (g - v) / (double) v;
     }
 
 
@@ -92,6 +126,8 @@ public class MinimumPathRobot {
      * @return the total cost of getting from (0, 0) to (l - 1, c - 1)
      */
     public static int glouton(int[][] north_grid, int[][] east_grid, int[][] northeast_grid) {
+        long probe = Metrics.start();
+
         int total = 0;
 
         int l = 0, c = 0;
@@ -118,6 +154,8 @@ public class MinimumPathRobot {
             total += min_cost;
         }
 
+        Metrics.record(Metrics.Solver.ROBOT_GLOUTON, probe, (long) L * C, L + C);
+
         return total;
     }
 
@@ -130,6 +168,8 @@ public class MinimumPathRobot {
      * @return the problem-solving matrix
      */
     public static int[][] calculerM(int[][] north_grid, int[][] east_grid, int[][] northeast_grid) {
+        long probe = Metrics.start();
+
         int L = north_grid.length;
         int C = north_grid[0].length;
 
@@ -148,9 +188,146 @@ public class MinimumPathRobot {
                         M[l - 1][c - 1] + NE(l - 1, c - 1, L, C, northeast_grid)
                 );
 
+        Metrics.record(Metrics.Solver.ROBOT_DP, probe, (long) L * C, (long) L * C);
+
+        return M;
+    }
+
+    /**
+     * Apply the optimised strategy in a table out of the heap, for the grids whose table is too large for an array
+     *
+     * @param north_grid     northbound movement grid
+     * @param east_grid      eastward movement grid
+     * @param northeast_grid north-eastward movement grid
+     * @param M              table of L lines and C columns receiving M[l][c] = m(l,c)
+     * @return the table M
+     */
+    public static OffHeapTable calculerM(int[][] north_grid, int[][] east_grid, int[][] northeast_grid, OffHeapTable M) {
+        int L = north_grid.length;
+        int C = north_grid[0].length;
+        if (M.lines() != L || M.columns() != C) throw new IllegalArgumentException("the table must be L x C");
+
+        // base
+        M.set(0, 0, 0);
+        for (int c = 1; c < C; c++) M.set(0, c, M.get(0, c - 1) + E(0, c - 1, L, C, east_grid));
+        for (int l = 1; l < L; l++) M.set(l, 0, M.get(l - 1, 0) + N(l - 1, 0, L, C, north_grid));
+
+        // cas général, ligne par ligne pour parcourir la table dans l'ordre de la mémoire
+        for (int l = 1; l < L; l++)
+            for (int c = 1; c < C; c++)
+                M.set(l, c, min(
+                        M.get(l, c - 1) + E(l, c - 1, L, C, east_grid),
+                        M.get(l - 1, c) + N(l - 1, c, L, C, north_grid),
+                        M.get(l - 1, c - 1) + NE(l - 1, c - 1, L, C, northeast_grid)
+                ));
+
         return M;
     }
 
+    /**
+     * Apply the optimised strategy within the limits of a context
+     *
+     * @param north_grid     northbound movement grid
+     * @param east_grid      eastward movement grid
+     * @param northeast_grid north-eastward movement grid
+     * @param context        time budget and cancellation of the resolution
+     * @return the optimum if the resolution went to the end, its best known bounds otherwise
+     */
+    public static SolveContext.Bound solveWithin(int[][] north_grid, int[][] east_grid, int[][] northeast_grid,
+                                                 SolveContext context) {
+        int L = north_grid.length;
+        int C = north_grid[0].length;
+
+        // the greedy path is feasible, so its cost is an upper bound
+        int upper = glouton(north_grid, east_grid, northeast_grid);
+
+        // the table is computed column by column, only two columns are kept
+        int[] prev = new int[L];
+        int[] cur = new int[L];
+        for (int l = 1; l < L; l++) prev[l] = prev[l - 1] + N(l - 1, 0, L, C, north_grid);
+
+        for (int c = 1; c < C; c++) {
+            if (context.expired()) {
+                // every path crosses the column c - 1 and the costs are positive
+                return new SolveContext.Bound(Arrays.stream(prev).min().getAsInt(), upper);
+            }
+
+            cur[0] = prev[0] + E(0, c - 1, L, C, east_grid);
+            for (int l = 1; l < L; l++)
+                cur[l] = min(
+                        prev[l] + E(l, c - 1, L, C, east_grid),
+                        cur[l - 1] + N(l - 1, c, L, C, north_grid),
+                        prev[l - 1] + NE(l - 1, c - 1, L, C, northeast_grid)
+                );
+
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+
+        return new SolveContext.Bound(prev[L - 1], prev[L - 1]);
+    }
+
+    /**
+     * Apply the optimised strategy, keeping the k best paths instead of the best one only
+     *
+     * @param north_grid     northbound movement grid
+     * @param east_grid      eastward movement grid
+     * @param northeast_grid north-eastward movement grid
+     * @param k              number of paths to find
+     * @return the k cheapest paths from (0, 0) to (L - 1, C - 1), from the best to the worst
+     */
+    public static KBestPaths.Path[] calculerTopK(int[][] north_grid, int[][] east_grid, int[][] northeast_grid, int k) {
+        int L = north_grid.length;
+        int C = north_grid[0].length;
+
+        KBestPaths engine = ENGINE.get();
+        engine.reset(L * C, k);
+
+        int[] preds = new int[3];
+        int[] costs = new int[3];
+        byte[] moves = new byte[3];
+
+        // the cell (l, c) is numbered l * C + c, the row-major order is a topological order
+        engine.seed(0, 0);
+
+        for (int l = 0; l < L; l++) {
+            for (int c = 0; c < C; c++) {
+                if (l == 0 && c == 0) continue;
+
+                int n = 0;
+
+                // coming from the West
+                if (c > 0) {
+                    preds[n] = l * C + c - 1;
+                    costs[n] = E(l, c - 1, L, C, east_grid);
+                    moves[n++] = 0;
+                }
+
+                // coming from the South
+                if (l > 0) {
+                    preds[n] = (l - 1) * C + c;
+                    costs[n] = N(l - 1, c, L, C, north_grid);
+                    moves[n++] = 1;
+                }
+
+                // coming from the South West
+                if (l > 0 && c > 0) {
+                    preds[n] = (l - 1) * C + c - 1;
+                    costs[n] = NE(l - 1, c - 1, L, C, northeast_grid);
+                    moves[n++] = 2;
+                }
+
+                engine.combine(l * C + c, preds, costs, moves, n);
+            }
+        }
+
+        KBestPaths.Path[] paths = engine.paths(L * C - 1, MOVES, true, 1);
+        engine.trim();
+
+        return paths;
+    }
+
     /**
      * Generate a L-C grid as a matrix L x C with random values
      *
@@ -159,9 +336,18 @@ public class MinimumPathRobot {
      * @return the grid created
      */
     public static int[][] generateGrid(int L, int C) {
-        // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
-        Random rand = ThreadLocalRandom.current();
+        return generateGrid(L, C, ThreadLocalRandom.current());
+    }
 
+    /**
+     * Generate a L-C grid as a matrix L x C with random values
+     *
+     * @param L how many L cells the matrix should have
+     * @param C how many C cells the matrix should have
+     * @param rand PRNG used to generate the values
+     * @return the grid created
+     */
+    public static int[][] generateGrid(int L, int C, Random rand) {
         // Matrix M(L, C) as our grid
         int[][] grid = new int[L][C];
 
@@ -0,0 +1,157 @@
+/**
+ * Table of ints stored out of the Java heap, for tables beyond the limits of the Java arrays
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+public class OffHeapTable implements AutoCloseable {
+    /**
+     * each chunk holds 2^28 ints (1 GiB), a mapping cannot exceed 2 GiB
+     */
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /**
+     * folder of the backing files, -Dtable.dir=/dev/shm keeps the tables which fit in memory off the disk
+     */
+    private static final Path FOLDER = Path.of(System.getProperty("table.dir", System.getProperty("java.io.tmpdir")));
+
+    /**
+     * unmaps a mapping at once instead of waiting for the GC (sun.misc.Unsafe.invokeCleaner), null if not available
+     */
+    private static final MethodHandle UNMAP = unmapper();
+
+    private final long lines;
+    private final long columns;
+
+    /**
+     * the table is backed by a temporary file mapped in memory: the pages live in the page cache of the system,
+     * out of the heap. As for any shared mapping of a file, the modified pages are written back to the disk
+     * regularly by the system, so a large table costs disk writes of its size unless the folder is a tmpfs
+     */
+    private MappedByteBuffer[] mappings;
+    private IntBuffer[] chunks;
+
+    /**
+     * Create a table, all its values being 0
+     * @param lines number of lines of the table
+     * @param columns number of columns of the table
+     */
+    public OffHeapTable(long lines, long columns) {
+        this.lines = lines;
+        this.columns = columns;
+
+        long size = Math.multiplyExact(lines, columns);
+        int count = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+        try {
+            Path file = Files.createTempFile(FOLDER, "table", ".bin");
+
+            // the file is deleted when the channel is closed, at the end of the constructor or if a mapping fails:
+            // the mappings keep the data alive and nothing is left behind, even if the JVM crashes
+            try (FileChannel channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE)) {
+                mappings = new MappedByteBuffer[count];
+                chunks = new IntBuffer[count];
+
+                for (int i = 0; i < count; i++) {
+                    long ints = Math.min(1L << CHUNK_SHIFT, size - ((long) i << CHUNK_SHIFT));
+
+                    mappings[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << (CHUNK_SHIFT + 2), ints * Integer.BYTES);
+                    chunks[i] = mappings[i].order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            } catch (IOException | RuntimeException e) {
+                unmap();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long lines() {
+        return lines;
+    }
+
+    public long columns() {
+        return columns;
+    }
+
+    /**
+     * @param l line of the value
+     * @param c column of the value
+     * @return the value T[l][c]
+     */
+    public int get(long l, long c) {
+        long i = l * columns + c;
+        return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK));
+    }
+
+    /**
+     * Change the value T[l][c]
+     * @param l line of the value
+     * @param c column of the value
+     * @param value new value
+     */
+    public void set(long l, long c, int value) {
+        long i = l * columns + c;
+        chunks[(int) (i >>> CHUNK_SHIFT)].put((int) (i & CHUNK_MASK), value);
+    }
+
+    /**
+     * End the lifetime of the table: its memory is released at once and it can no longer be used.
+     * The table must not be used by another thread meanwhile.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+        unmap();
+    }
+
+    private void unmap() {
+        MappedByteBuffer[] released = mappings;
+        mappings = null;
+        if (released == null || UNMAP == null) return;
+
+        try {
+            for (MappedByteBuffer mapping : released) if (mapping != null) UNMAP.invokeExact((ByteBuffer) mapping);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the method releasing a mapping, or null if the JVM does not give access to it (the GC releases it then)
+     */
+    private static MethodHandle unmapper() {
+        try {
+            Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            Field instance = unsafe.getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+
+            return MethodHandles.lookup()
+                    .findVirtual(unsafe, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(instance.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
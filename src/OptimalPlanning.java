@@ -26,59 +26,125 @@ public class OptimalPlanning {
 
 
     public static void main(String[] Args) {
-        var data = launch(5000);
-        Utils.export_data("optimal_planning", data);
+        // the JIT compiles the solvers before the measured runs
+        if (WarmUp.ENABLED) WarmUp.run("planning");
+
+        var stats = launch(5000);
+        Utils.export_stats("optimal_planning", stats);
+
+        Metrics.export("metrics_optimal_planning");
     }
 
     /**
      * Launch the different strategies and review the results data
      * @param run_limit number of runs to make
-     * @return the relative distances
+     * @return the statistics of the relative distances
      */
-    static public double[] launch(int run_limit) {
+    static public StreamingStats launch(int run_limit) {
         // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
         Random rand = ThreadLocalRandom.current();
-        double[] data = new double[run_limit];
+        StreamingStats stats = new StreamingStats();
+
+        // the instances are kept in the store to be replayed later
+        InstanceStore store = InstanceStore.ENABLED ? InstanceStore.open("optimal_planning") : null;
 
         long start_time = System.nanoTime();
 
-        int v;
         for (int run = 0; run < run_limit; run++) {
             System.out.printf("--- Run number #%d ---", run + 1);
             System.out.println();
 
-            int units = rand.nextInt(TMAX) + 1;
-            int hours_max = rand.nextInt(HMAX) + 1;
+            stats.add(run(rand, store));
+            Utils.print_summary(run + 1, stats);
+        }
 
-            System.out.printf("Number of units: %d", units);
-            System.out.println();
-            System.out.printf("Number of working hours: %d", hours_max);
-            System.out.println();
+        long elapsed_time = System.nanoTime() - start_time;
 
-            int[][] notes = generateNotes(units, hours_max);
+        if (store != null) store.close();
 
-            // Juliette travaille H heures, 0 ≤ H <= hours_max
-            int[][][] MA = calculerMA(notes);
-            int[][] M = MA[0];
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
 
-            v = M[units][hours_max];
+        return stats;
+    }
 
-            int g = glouton(notes, hours_max);
+    /**
+     * Make one run: generate an instance, apply the strategies and compare them
+     * @param rand PRNG used to generate the instance
+     * @param store store receiving the instance, null if the instances are not kept
+     * @return the relative distance between the strategies
+     */
+    static public double run(Random rand, InstanceStore store) {
+        int units = rand.nextInt(TMAX) + 1;
+        int hours_max = rand.nextInt(HMAX) + 1;
 
-            Utils.print_result(g, v);
+        System.out.printf("Number of units: %d", units);
+        System.out.println();
+        System.out.printf("Number of working hours: %d", hours_max);
+        System.out.println();
 
-            data[run] = v == 0 ? 0 : (double) (v - g) / (double) v;
-        }
+        int[][] notes = generateNotes(units, hours_max, rand);
 
-        long elapsed_time = System.nanoTime() - start_time;
+        // Juliette travaille H heures, 0 ≤ H <= hours_max
+        int[][][] MA = calculerMA(notes);
+        int[][] M = MA[0];
 
-        System.out.println();
-        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        int v = M[units][hours_max];
+
+        int g = glouton(notes, hours_max);
+
+        if (store != null) store.append(SolverPlanner.Problem.PLANNING, units, hours_max + 1, InstanceStore.flatten(notes), g, v);
+
+        Utils.print_result(g, v);
+
+        return v == 0 ? 0 : (double) (v - g) / (double) v;
+    }
+
+    /**
+     * Apply the optimised strategy within the limits of a context
+     * @param E estimated marks of the units
+     * @param context time budget and cancellation of the resolution
+     * @return the optimum if the resolution went to the end, its best known bounds otherwise
+     */
+    static SolveContext.Bound solveWithin(int[][] E, SolveContext context) {
+        int n = E.length, H = E[0].length - 1;
 
-        return data;
+        int lower = glouton(E, H);
+
+        // only two lines of M are kept, the base is the sum of the marks without work
+        int[] prev = new int[H + 1];
+        int[] cur = new int[H + 1];
+        int s0 = 0;
+        for (int[] ints : E) s0 = s0 + ints[0];
+        Arrays.fill(prev, s0);
+
+        for (int k = 1; k < n + 1; k++) {
+            if (context.expired()) {
+                // m(k-1, H) leaves the remaining units without work, they can at best reach their highest mark
+                int upper = prev[H];
+                for (int i = k - 1; i < n; i++) upper += Arrays.stream(E[i]).max().getAsInt() - E[i][0];
+
+                return new SolveContext.Bound(Math.max(lower, prev[H]), upper);
+            }
+
+            for (int h = 0; h < H + 1; h++) {
+                cur[h] = -1;
+                for (int h_k = 0; h_k < h + 1; h_k++) cur[h] = Math.max(cur[h], prev[h - h_k] + E[k - 1][h_k]);
+                cur[h] -= E[k - 1][0];
+            }
+
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+
+        return new SolveContext.Bound(prev[H], prev[H]);
     }
 
     private static int glouton(int[][] notes, int quota) {
+        long probe = Metrics.start();
+        int hours = quota;
+
         int units = notes.length;
         int[] hours_allocation = new int[units];
 
@@ -114,6 +180,8 @@ public class OptimalPlanning {
             sum += notes[i][hour - 1];
         }
 
+        Metrics.record(Metrics.Solver.PLANNING_GLOUTON, probe, units, (long) units * hours);
+
         return sum;
     }
 
@@ -125,8 +193,18 @@ public class OptimalPlanning {
      * be expected with a revision time corresponding to the index
      */
     static public int[][] generateNotes(int units, int h_max) {
-        Random rand = ThreadLocalRandom.current();
+        return generateNotes(units, h_max, ThreadLocalRandom.current());
+    }
 
+    /**
+     * Generate random marks on units according to the time spent on revision
+     * @param units number of units
+     * @param h_max maximum number of hours of revision
+     * @param rand PRNG used to generate the values
+     * @return a 2D table representing the units and the nested table, the scores that can
+     * be expected with a revision time corresponding to the index
+     */
+    static public int[][] generateNotes(int units, int h_max, Random rand) {
         // E[i][h] = e(i,h). Les estimations sont aléatoires, croissantes selon h.
         int[][] E = new int[units][h_max + 1];
 
@@ -139,6 +217,8 @@ public class OptimalPlanning {
     }
 
     static int[][][] calculerMA(int[][] E) {    // E : tableau des notes estimées.
+        long probe = Metrics.start();
+
         // E[0:n][0:H+1] est de terme général E[i][h] = e(i,h).
         // Retourne M et A : M[0:n+1][0:H+1] de terme général M[k][h] = m(k,h), somme maximum
         // des notes d'une répartition de h heures sur le sous-ensemble des k premières unités.
@@ -174,6 +254,8 @@ public class OptimalPlanning {
                 M[k][h] = M[k][h] - E[k - 1][0];  // M[k][h] = m(k,h)
             }
 
+        Metrics.record(Metrics.Solver.PLANNING_DP, probe, n, (long) (n + 1) * (H + 1));
+
         return new int[][][]{M, A};
     }
 }
\ No newline at end of file
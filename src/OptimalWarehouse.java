@@ -8,6 +8,7 @@
  * Created with Java 18
  **/
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -24,19 +25,27 @@ public class OptimalWarehouse {
     public static final int SMAX = 50;
 
     public static void main(String[] args) {
-        var data = launch(10_000);
-        Utils.export_data("optimal_warehouse", data);
+        // the JIT compiles the solvers before the measured runs
+        if (WarmUp.ENABLED) WarmUp.run("warehouse");
+
+        var stats = launch(10_000);
+        Utils.export_stats("optimal_warehouse", stats);
+
+        Metrics.export("metrics_optimal_warehouse");
     }
 
     /**
      * Launch the different strategies and review the results data
      * @param run_limit number of runs to make
-     * @return the relative distances
+     * @return the statistics of the relative distances
      */
-    static double[] launch(int run_limit) {
+    static StreamingStats launch(int run_limit) {
         // we use a thread local PRNG to ensure that there will be no unnecessary instantiation & allocations
         Random rand = ThreadLocalRandom.current();
-        double[] data = new double[run_limit];
+        StreamingStats stats = new StreamingStats();
+
+        // the instances are kept in the store to be replayed later
+        InstanceStore store = InstanceStore.ENABLED ? InstanceStore.open("optimal_warehouse") : null;
 
         long start_time = System.nanoTime();
 
@@ -44,35 +53,52 @@ public class OptimalWarehouse {
             System.out.printf("--- Run number #%d ---", run + 1);
             System.out.println();
 
-            int stock = rand.nextInt(SMAX) + 1;
-            System.out.printf("Stock: %d", stock);
-            System.out.println();
+            stats.add(run(rand, store));
+            Utils.print_summary(run + 1, stats);
+        }
 
-            int warehouses = rand.nextInt(WMAX) + 1;
-            System.out.printf("Number of warehouses: %d", warehouses);
-            System.out.println();
+        long elapsed_time = System.nanoTime() - start_time;
 
-            int[][] gains = generateGain(warehouses, stock);
+        if (store != null) store.close();
 
-            int[][] M = calculerMA(gains);
-            var v = M[warehouses][stock];
+        System.out.println();
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
 
-            int g = glouton(gains, stock);
+        return stats;
+    }
 
-            Utils.print_result(g, v);
+    /**
+     * Make one run: generate an instance, apply the strategies and compare them
+     * @param rand PRNG used to generate the instance
+     * @param store store receiving the instance, null if the instances are not kept
+     * @return the relative distance between the strategies
+     */
+    static double run(Random rand, InstanceStore store) {
+        int stock = rand.nextInt(SMAX) + 1;
+        System.out.printf("Stock: %d", stock);
+        System.out.println();
 
-            data[run] = v == 0 ? 0 : (double) (v - g) / (double) v;
-        }
+        int warehouses = rand.nextInt(WMAX) + 1;
+        System.out.printf("Number of warehouses: %d", warehouses);
+        System.out.println();
 
-        long elapsed_time = System.nanoTime() - start_time;
+        int[][] gains = generateGain(warehouses, stock, rand);
 
-        System.out.println();
-        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        int[][] M = calculerMA(gains);
+        var v = M[warehouses][stock];
+
+        int g = glouton(gains, stock);
+
+        if (store != null) store.append(SolverPlanner.Problem.WAREHOUSE, warehouses, stock + 1, InstanceStore.flatten(gains), g, v);
+
+        Utils.print_result(g, v);
 
-        return data;
+        return v == 0 ? 0 : (double) (v - g) / (double) v;
     }
 
     static int[][] calculerMA(int[][] G) {
+        long probe = Metrics.start();
+
         // G[0:n][0:S+1] de terme général
         // G[i][s] = gain d'une livraison d'un stock s à l'entrepôt i.
 
@@ -96,9 +122,50 @@ public class OptimalWarehouse {
             }
         }
 
+        Metrics.record(Metrics.Solver.WAREHOUSE_DP, probe, n, (long) (n + 1) * (S + 1));
+
         return M;
     }
 
+    /**
+     * Apply the optimised strategy within the limits of a context
+     * @param G values of the gains for the warehouses
+     * @param context time budget and cancellation of the resolution
+     * @return the optimum if the resolution went to the end, its best known bounds otherwise
+     */
+    static SolveContext.Bound solveWithin(int[][] G, SolveContext context) {
+        int n = G.length;
+        int S = G[0].length - 1;
+
+        int lower = glouton(G, S);
+
+        // only two lines of M are kept
+        int[] prev = new int[S + 1];
+        int[] cur = new int[S + 1];
+
+        for (int k = 1; k < n + 1; k++) {
+            if (context.expired()) {
+                // m(k-1, S) is reached by giving nothing to the remaining warehouses,
+                // which can at best add their highest gain each
+                int upper = prev[S];
+                for (int i = k - 1; i < n; i++) upper += Arrays.stream(G[i]).max().getAsInt();
+
+                return new SolveContext.Bound(Math.max(lower, prev[S]), upper);
+            }
+
+            for (int s = 0; s < S + 1; s++) {
+                cur[s] = 0;
+                for (int sk = 0; sk < s + 1; sk++) cur[s] = Math.max(cur[s], G[k - 1][sk] + prev[s - sk]);
+            }
+
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+
+        return new SolveContext.Bound(prev[S], prev[S]);
+    }
+
     /**
      * Apply the greedy strategy
      * @param gains values of the gains for the warehouses
@@ -106,6 +173,9 @@ public class OptimalWarehouse {
      * @return the resolution matrix
      */
     private static int glouton(int[][] gains, int stock) {
+        long probe = Metrics.start();
+        int stock_max = stock;
+
         int warehouses = gains.length;
         int[] stock_allocation = new int[warehouses];
 
@@ -137,6 +207,8 @@ public class OptimalWarehouse {
             sum += gains[i][s];
         }
 
+        Metrics.record(Metrics.Solver.WAREHOUSE_GLOUTON, probe, warehouses, (long) warehouses * stock_max);
+
         return sum;
     }
 
@@ -149,8 +221,19 @@ public class OptimalWarehouse {
      * be expected with a stock corresponding to the index
      */
     static public int[][] generateGain(int warehouses, int stock_max) {
-        Random rand = ThreadLocalRandom.current();
+        return generateGain(warehouses, stock_max, ThreadLocalRandom.current());
+    }
 
+    /**
+     * Generate random gain on warehouses according to the stock they have
+     * This procedure is practically the same as for the optimal planning problem
+     * @param warehouses number of warehouses
+     * @param stock_max maximum number of stock
+     * @param rand PRNG used to generate the values
+     * @return a 2D table representing the warehouses and the nested table, the gain that can
+     * be expected with a stock corresponding to the index
+     */
+    static public int[][] generateGain(int warehouses, int stock_max, Random rand) {
         // G[i][h] = g(i,h). Les estimations sont aléatoires, croissantes selon h.
         int[][] G = new int[warehouses][stock_max + 1];
 
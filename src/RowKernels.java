@@ -0,0 +1,77 @@
+/**
+ * Element-wise kernels used by the row-based dynamic programming recurrences
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+public class RowKernels {
+    /**
+     * true when the kernels are computed by VectorKernels, which needs a JVM started with --add-modules jdk.incubator.vector.
+     * Otherwise, or with -Dkernels=scalar, the scalar loops below are used.
+     */
+    public static final boolean VECTOR = vectorAvailable();
+
+    /**
+     * Computes cur[c] = max(prev[c], prev[c - shift] + add) for shift <= c < length,
+     * and cur[c] = prev[c] for the first cells where the shifted value does not exist.
+     * The scalar loop reads and writes whole rows without branch nor index arithmetic, which is where its gain over
+     * the cell by cell recurrence comes from. The JIT does not turn it into SIMD instructions, VectorKernels does.
+     *
+     * @param prev  previous row
+     * @param cur   row to compute, must not be prev
+     * @param shift shift of the second operand
+     * @param add   value added to the shifted operand
+     * @param length number of cells to compute
+     */
+    public static void maxShiftAdd(int[] prev, int[] cur, int shift, int add, int length) {
+        if (VECTOR) {
+            VectorKernels.maxShiftAdd(prev, cur, shift, add, length);
+            return;
+        }
+
+        int head = Math.min(shift, length);
+        System.arraycopy(prev, 0, cur, 0, head);
+
+        for (int c = head; c < length; c++) {
+            cur[c] = Math.max(prev[c], prev[c - shift] + add);
+        }
+    }
+
+    /**
+     * Computes row[p] = max(below[p], below[p + 1]) + add[offset + p] for 0 <= p < length
+     *
+     * @param below  row below, of length + 1 cells at least
+     * @param add    array holding the values added to the maximum
+     * @param offset index in add of the value of the first cell
+     * @param row    row to compute, must not be below
+     * @param length number of cells to compute
+     */
+    public static void maxPairAdd(int[] below, int[] add, int offset, int[] row, int length) {
+        if (VECTOR) {
+            VectorKernels.maxPairAdd(below, add, offset, row, length);
+            return;
+        }
+
+        for (int p = 0; p < length; p++) {
+            row[p] = Math.max(below[p], below[p + 1]) + add[offset + p];
+        }
+    }
+
+    /**
+     * The class VectorKernels is only loaded here, when its module is there
+     */
+    private static boolean vectorAvailable() {
+        if ("scalar".equals(System.getProperty("kernels"))) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+
+        try {
+            Class.forName("VectorKernels");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Time budget and cancellation of a long resolution
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.util.concurrent.TimeUnit;
+
+public class SolveContext {
+    /**
+     * date (System.nanoTime) after which the resolution must stop
+     */
+    private final long deadline;
+
+    /**
+     * set by another thread to stop the resolution
+     */
+    private volatile boolean cancelled;
+
+    private SolveContext(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param budget time allowed to the resolution
+     * @param unit unit of the budget
+     * @return a context expiring after the budget
+     */
+    public static SolveContext within(long budget, TimeUnit unit) {
+        return new SolveContext(System.nanoTime() + unit.toNanos(budget));
+    }
+
+    /**
+     * @return a context which only expires when cancelled
+     */
+    public static SolveContext unbounded() {
+        return new SolveContext(Long.MAX_VALUE);
+    }
+
+    /**
+     * Ask the resolution to stop as soon as possible, it will return the bounds known at this moment
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checked by the solvers between two lines of their table
+     * @return true if the resolution must stop
+     */
+    public boolean expired() {
+        return cancelled || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Bounds of the optimum known when a resolution stops: lower <= optimum <= upper.
+     * The feasible solution found is the lower bound of a maximisation and the upper bound of a minimisation.
+     *
+     * @param lower lower bound of the optimum
+     * @param upper upper bound of the optimum
+     */
+    public record Bound(int lower, int upper) {
+        /**
+         * @return true if the resolution went to the end
+         */
+        public boolean exact() {
+            return lower == upper;
+        }
+
+        /**
+         * @return the relative gap between the bounds
+         */
+        public double gap() {
+            return upper == 0 ? 0 : (double) (upper - lower) / (double) upper;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ * Selection of the cheapest solver able to meet a requested guarantee, instance by instance
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class SolverPlanner {
+    /**
+     * number of decisions taken for each problem and each engine
+     */
+    private static final AtomicLongArray DECISIONS = new AtomicLongArray(Problem.values().length * Engine.values().length);
+
+    public static void main(String[] args) {
+        Random rand = ThreadLocalRandom.current();
+
+        for (int run = 0; run < 10_000; run++) {
+            int n = rand.nextInt(MaximumValueBag.NMAX) + 1;
+            MaximumValueBag.BagObject[] objects = new MaximumValueBag.BagObject[n];
+            for (int i = 0; i < n; i++) objects[i] = MaximumValueBag.BagObject.CreateRandomObject();
+            bag(objects, rand.nextInt(MaximumValueBag.CMAX) + 1, Guarantee.EXACT);
+
+            int warehouses = rand.nextInt(OptimalWarehouse.WMAX) + 1;
+            warehouse(OptimalWarehouse.generateGain(warehouses, rand.nextInt(OptimalWarehouse.SMAX) + 1), Guarantee.EXACT);
+
+            int units = rand.nextInt(OptimalPlanning.TMAX) + 1;
+            planning(OptimalPlanning.generateNotes(units, rand.nextInt(OptimalPlanning.HMAX) + 1), Guarantee.EXACT);
+        }
+
+        System.out.println(summary());
+    }
+
+    /**
+     * Solve a bag problem
+     * @param objects objects that can be chosen (the array is not modified)
+     * @param C max capacity of the bag
+     * @param guarantee requested guarantee
+     * @return the decision taken and its result
+     */
+    public static Decision bag(MaximumValueBag.BagObject[] objects, int C, Guarantee guarantee) {
+        // objects bigger than the bag can never be chosen
+        MaximumValueBag.BagObject[] fitting = Arrays.stream(objects)
+                .filter(object -> object.size() <= C)
+                .toArray(MaximumValueBag.BagObject[]::new);
+
+        long total_size = 0;
+        boolean same_size = true, same_value = true;
+
+        for (MaximumValueBag.BagObject object : fitting) {
+            total_size += object.size();
+            same_size &= object.size() == fitting[0].size();
+            same_value &= object.value() == fitting[0].value();
+        }
+
+        // everything fits: the optimum is to take everything
+        if (total_size <= C) {
+            int sum = Arrays.stream(fitting).mapToInt(MaximumValueBag.BagObject::value).sum();
+            return decide(Problem.BAG, Engine.TAKE_ALL, sum, 1);
+        }
+
+        // same sizes: the optimum is the C / size most valuable objects
+        // same values: the optimum is the largest number of objects, so the smallest ones
+        if (same_size || same_value) {
+            Comparator<MaximumValueBag.BagObject> comparator = same_size
+                    ? Comparator.comparing(MaximumValueBag.BagObject::value).reversed()
+                    : Comparator.comparing(MaximumValueBag.BagObject::size);
+
+            return decide(Problem.BAG, Engine.SORTED_GREEDY, MaximumValueBag.glouton(fitting, C, comparator), 1);
+        }
+
+        if (guarantee.ratio() <= 0.5) {
+            // the greedy by ratio completed with the best single object is a 1/2-approximation
+            int g = MaximumValueBag.glouton(fitting, C, Comparator.comparing(MaximumValueBag.BagObject::ratio).reversed());
+            int best = Arrays.stream(fitting).mapToInt(MaximumValueBag.BagObject::value).max().orElse(0);
+
+            return decide(Problem.BAG, Engine.GREEDY, Math.max(g, best), 0.5);
+        }
+
+        // the value-indexed scheme costs about n^3 / epsilon cells against n * C for the exact one
+        double epsilon = 1 - guarantee.ratio();
+        int n = fitting.length;
+
+        if (epsilon > 0 && (double) n * n * n / epsilon < (double) n * C) {
+            MaximumValueBag.Approximation approximation = MaximumValueBag.calculerFPTAS(fitting, C, epsilon);
+            return decide(Problem.BAG, Engine.FPTAS, approximation.value(), approximation.ratio());
+        }
+
+        int[][] M = MaximumValueBag.calculerM(fitting, C);
+        return decide(Problem.BAG, Engine.DP, M[n][C], 1);
+    }
+
+    /**
+     * Solve a warehouse problem
+     * @param G gains, G[i][s] being the gain of a stock s in the warehouse i
+     * @param guarantee requested guarantee
+     * @return the decision taken and its result
+     */
+    public static Decision warehouse(int[][] G, Guarantee guarantee) {
+        int S = G[0].length - 1;
+
+        // with diminishing returns, giving each unit of stock to the best marginal gain is optimal
+        if (concave(G)) return decide(Problem.WAREHOUSE, Engine.MARGINAL_GREEDY, marginal(G, S), 1);
+
+        if (guarantee.ratio() <= 0) return decide(Problem.WAREHOUSE, Engine.GREEDY, marginal(G, S), 0);
+
+        int[][] M = OptimalWarehouse.calculerMA(G);
+        return decide(Problem.WAREHOUSE, Engine.DP, M[G.length][S], 1);
+    }
+
+    /**
+     * Solve a planning problem
+     * @param E estimated marks, E[i][h] being the mark of the unit i with h hours of work
+     * @param guarantee requested guarantee
+     * @return the decision taken and its result
+     */
+    public static Decision planning(int[][] E, Guarantee guarantee) {
+        int H = E[0].length - 1;
+
+        // same reasoning as for the warehouses
+        if (concave(E)) return decide(Problem.PLANNING, Engine.MARGINAL_GREEDY, marginal(E, H), 1);
+
+        if (guarantee.ratio() <= 0) return decide(Problem.PLANNING, Engine.GREEDY, marginal(E, H), 0);
+
+        int[][] M = OptimalPlanning.calculerMA(E)[0];
+        return decide(Problem.PLANNING, Engine.DP, M[E.length][H], 1);
+    }
+
+    /**
+     * Solve a triangle problem
+     * @param T triangle's data
+     * @param guarantee requested guarantee
+     * @return the decision taken and its result
+     */
+    public static Decision triangle(int[] T, Guarantee guarantee) {
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+
+        // the dynamic programming is linear in the size of the triangle, only the greedy is cheaper
+        if (guarantee.ratio() <= 0) return decide(Problem.TRIANGLE, Engine.GREEDY, MaximumPathTriangle.glouton(T, L), 0);
+
+        return decide(Problem.TRIANGLE, Engine.DP, MaximumPathTriangle.calculerM(T)[0], 1);
+    }
+
+    /**
+     * Solve a robot problem
+     * @param north_grid     northbound movement grid
+     * @param east_grid      eastward movement grid
+     * @param northeast_grid north-eastward movement grid
+     * @param guarantee      requested guarantee
+     * @return the decision taken and its result
+     */
+    public static Decision robot(int[][] north_grid, int[][] east_grid, int[][] northeast_grid, Guarantee guarantee) {
+        int L = north_grid.length;
+        int C = north_grid[0].length;
+
+        // a single row or column leaves a single path, which is the one of the greedy
+        if (L == 1 || C == 1) {
+            return decide(Problem.ROBOT, Engine.SORTED_GREEDY, MinimumPathRobot.glouton(north_grid, east_grid, northeast_grid), 1);
+        }
+
+        if (guarantee.ratio() <= 0) {
+            return decide(Problem.ROBOT, Engine.GREEDY, MinimumPathRobot.glouton(north_grid, east_grid, northeast_grid), 0);
+        }
+
+        int[][] M = MinimumPathRobot.calculerM(north_grid, east_grid, northeast_grid);
+        return decide(Problem.ROBOT, Engine.DP, M[L - 1][C - 1], 1);
+    }
+
+    /**
+     * Forget the decisions taken so far, e.g. while warming up the JIT
+     */
+    public static void reset() {
+        for (int i = 0; i < DECISIONS.length(); i++) DECISIONS.set(i, 0);
+    }
+
+    /**
+     * Gives the number of decisions taken for each problem and engine
+     * @return a printable table
+     */
+    public static String summary() {
+        StringBuilder builder = new StringBuilder("DECISIONS\n");
+
+        for (Problem problem : Problem.values()) {
+            long total = 0;
+            for (Engine engine : Engine.values()) total += DECISIONS.get(index(problem, engine));
+            if (total == 0) continue;
+
+            builder.append(problem).append('\n');
+
+            for (Engine engine : Engine.values()) {
+                long count = DECISIONS.get(index(problem, engine));
+                if (count == 0) continue;
+
+                builder.append("  %-16s %10d  %6.2f%%\n".formatted(engine, count, 100.0 * count / total));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Tells if every line of the table has diminishing increments
+     * @param table a table whose lines are gains according to an allocated quantity
+     * @return true if all the lines are concave
+     */
+    static boolean concave(int[][] table) {
+        for (int[] line : table) {
+            for (int q = 2; q < line.length; q++) {
+                if (line[q] - line[q - 1] > line[q - 1] - line[q - 2]) return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Allocate a budget one unit at a time to the line with the best marginal gain, as long as it is positive
+     * (optimal when the lines are concave)
+     * @param table a table whose lines are gains according to an allocated quantity
+     * @param budget quantity to allocate
+     * @return the sum of the gains of the allocation
+     */
+    static int marginal(int[][] table, int budget) {
+        int[] allocation = new int[table.length];
+
+        for (; budget > 0; budget--) {
+            int index = -1;
+            int max = Integer.MIN_VALUE;
+
+            for (int i = 0; i < table.length; i++) {
+                int allocated = allocation[i];
+                if (allocated + 1 >= table[i].length) continue;
+
+                int diff = table[i][allocated + 1] - table[i][allocated];
+                if (diff > max) {
+                    max = diff;
+                    index = i;
+                }
+            }
+
+            // every line is full, or no unit can increase the sum any more: the rest of the budget stays unused,
+            // as the dynamic programming allows it
+            if (index == -1 || max <= 0) break;
+            allocation[index]++;
+        }
+
+        int sum = 0;
+        for (int i = 0; i < table.length; i++) sum += table[i][allocation[i]];
+
+        return sum;
+    }
+
+    private static Decision decide(Problem problem, Engine engine, int value, double ratio) {
+        DECISIONS.incrementAndGet(index(problem, engine));
+        return new Decision(engine, value, ratio);
+    }
+
+    private static int index(Problem problem, Engine engine) {
+        return problem.ordinal() * Engine.values().length + engine.ordinal();
+    }
+
+    /**
+     * Guarantee requested on the result
+     *
+     * @param ratio minimal ratio between the result and the optimum (1 for the optimum, 0 for no guarantee)
+     */
+    public record Guarantee(double ratio) {
+        public static final Guarantee EXACT = new Guarantee(1);
+        public static final Guarantee HALF = new Guarantee(0.5);
+        public static final Guarantee ANY = new Guarantee(0);
+    }
+
+    /**
+     * Result of the planner
+     *
+     * @param engine engine that has been chosen
+     * @param value  value found by the engine
+     * @param ratio  guaranteed ratio between the value and the optimum
+     */
+    public record Decision(Engine engine, int value, double ratio) {
+    }
+
+    /**
+     * Problems handled by the planner
+     */
+    public enum Problem {
+        BAG, TRIANGLE, ROBOT, PLANNING, WAREHOUSE
+    }
+
+    /**
+     * Engines the planner can choose
+     */
+    public enum Engine {
+        /**
+         * Every object fits, all of them are taken
+         */
+        TAKE_ALL,
+
+        /**
+         * Greedy strategy proven optimal on the shape of the instance
+         */
+        SORTED_GREEDY,
+
+        /**
+         * Marginal gain allocation, optimal on concave gains
+         */
+        MARGINAL_GREEDY,
+
+        /**
+         * Greedy strategy, with the guarantee given in the decision
+         */
+        GREEDY,
+
+        /**
+         * Approximation scheme on scaled values, with the guarantee given in the decision
+         */
+        FPTAS,
+
+        /**
+         * Exact dynamic programming
+         */
+        DP
+    }
+}
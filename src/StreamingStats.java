@@ -0,0 +1,247 @@
+/**
+ * Statistics of a stream of values in constant memory, mergeable between workers
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class StreamingStats {
+    /**
+     * default range of the histogram, the relative gaps are almost always in [0, 1]
+     */
+    public static final double LOW = 0, HIGH = 2;
+
+    /**
+     * default number of bins of the histogram, so the quantiles are given at 0.001 near
+     */
+    public static final int BINS = 2000;
+
+    private final double low, high;
+
+    /**
+     * bins[i] counts the values in [low + i * width, low + (i + 1) * width[
+     */
+    private final long[] bins;
+
+    /**
+     * values out of the range of the histogram
+     */
+    private long under, over;
+
+    private long count;
+    private double mean;
+
+    /**
+     * sum of the squares of the differences to the mean (Welford)
+     */
+    private double m2;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public StreamingStats() {
+        this(LOW, HIGH, BINS);
+    }
+
+    /**
+     * @param low lowest value of the histogram
+     * @param high highest value of the histogram
+     * @param bins number of bins of the histogram
+     */
+    public StreamingStats(double low, double high, int bins) {
+        this.low = low;
+        this.high = high;
+        this.bins = new long[bins];
+    }
+
+    /**
+     * Add a value to the statistics
+     * @param x the value
+     */
+    public void add(double x) {
+        count++;
+
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+
+        if (x < low) under++;
+        else if (x >= high) over++;
+        else bins[Math.min(bins.length - 1, (int) ((x - low) / (high - low) * bins.length))]++;
+    }
+
+    /**
+     * Add the values of other statistics to these ones
+     * @param other statistics with the same histogram range
+     * @return these statistics
+     */
+    public StreamingStats merge(StreamingStats other) {
+        if (other.bins.length != bins.length || other.low != low || other.high != high)
+            throw new IllegalArgumentException("the histograms do not have the same range");
+
+        if (other.count == 0) return this;
+
+        // combination of the partial variances (Chan et al.)
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        under += other.under;
+        over += other.over;
+        for (int i = 0; i < bins.length; i++) bins[i] += other.bins[i];
+
+        return this;
+    }
+
+    /**
+     * Merge the statistics of a worker into a shared total without locking: the total is replaced by a new
+     * instance, so the workers finishing at the same time only retry their merge
+     * @param total shared statistics
+     * @param part statistics of the worker, no longer modified
+     */
+    public static void combine(AtomicReference<StreamingStats> total, StreamingStats part) {
+        total.accumulateAndGet(part, (a, b) -> a.copy().merge(b));
+    }
+
+    /**
+     * @return an independent copy of these statistics
+     */
+    public StreamingStats copy() {
+        return new StreamingStats(low, high, bins.length).merge(this);
+    }
+
+    /**
+     * Send the statistics to another process
+     * @param out stream receiving the statistics
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(low);
+        out.writeDouble(high);
+        out.writeInt(bins.length);
+        for (long bin : bins) out.writeLong(bin);
+
+        out.writeLong(under);
+        out.writeLong(over);
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    /**
+     * Receive statistics sent by {@link #write}. The histogram of the sender must have the layout of the expected one,
+     * it is checked before anything is allocated, the count of bins being given by the sender.
+     * @param in stream sending the statistics
+     * @param layout statistics with the expected range and number of bins
+     * @return the statistics
+     * @throws IOException if the stream fails, or if it does not hold statistics of the expected layout
+     */
+    public static StreamingStats read(DataInput in, StreamingStats layout) throws IOException {
+        double low = in.readDouble(), high = in.readDouble();
+        int bins = in.readInt();
+
+        if (low != layout.low || high != layout.high || bins != layout.bins.length) {
+            throw new IOException("histogram of [%s, %s] in %d bins instead of [%s, %s] in %d bins"
+                    .formatted(low, high, bins, layout.low, layout.high, layout.bins.length));
+        }
+
+        StreamingStats stats = new StreamingStats(low, high, bins);
+        for (int i = 0; i < stats.bins.length; i++) stats.bins[i] = in.readLong();
+
+        stats.under = in.readLong();
+        stats.over = in.readLong();
+        stats.count = in.readLong();
+        stats.mean = in.readDouble();
+        stats.m2 = in.readDouble();
+        stats.min = in.readDouble();
+        stats.max = in.readDouble();
+
+        return stats;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double variance() {
+        // unbiased variance, as the var function of Octave
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    public double std() {
+        return Math.sqrt(variance());
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Estimate a quantile from the histogram
+     * @param q requested quantile, between 0 and 1
+     * @return the value of the quantile, at one bin width near
+     */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = under;
+        if (seen >= rank) return min;
+
+        double width = (high - low) / bins.length;
+
+        for (int i = 0; i < bins.length; i++) {
+            seen += bins[i];
+            // the middle of the bin, kept between the extreme values seen
+            if (seen >= rank) return Math.max(min, Math.min(max, low + (i + 0.5) * width));
+        }
+
+        return max;
+    }
+
+    /**
+     * @return the lowest value of each bin of the histogram and its count (lines "value,count")
+     */
+    public String histogram() {
+        StringBuilder builder = new StringBuilder();
+        double width = (high - low) / bins.length;
+
+        if (under > 0) builder.append("-Infinity,").append(under).append('\n');
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i] > 0) builder.append(low + i * width).append(',').append(bins[i]).append('\n');
+        }
+        if (over > 0) builder.append(high).append(',').append(over).append('\n');
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "count=%d mean=%f median=%f variance=%f std=%f min=%f max=%f p90=%f p99=%f".formatted(
+                count, mean, quantile(0.5), variance(), std(), min, max, quantile(0.9), quantile(0.99));
+    }
+}
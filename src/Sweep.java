@@ -0,0 +1,285 @@
+/**
+ * Campaigns over a grid of instance sizes, comparing several solvers on the same instances
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+public class Sweep {
+    /**
+     * Usage: Sweep [problem [sizes_a [sizes_b [runs [seed [threads]]]]]], the sizes being comma separated.
+     * Without arguments, every problem is swept on its default grid.
+     * The points are timed one at a time by default; with several threads the sweep is faster,
+     * but the times of the points include the contention with the other points running meanwhile.
+     */
+    public static void main(String[] args) {
+        List<String> names = args.length > 0 ? List.of(args[0]) : List.of("bag", "triangle", "robot", "planning", "warehouse");
+
+        for (String name : names) {
+            Family<?> family = family(name);
+
+            int[] A = args.length > 1 ? parse(args[1]) : family.A();
+            int[] B = args.length > 2 ? parse(args[2]) : family.B();
+            int runs = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 2102;
+            int threads = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+            run(family, A, B, runs, seed, threads);
+        }
+    }
+
+    /**
+     * Sweep a problem on every point of the grid A x B
+     * @param family problem to sweep
+     * @param A values of the first size parameter
+     * @param B values of the second size parameter
+     * @param runs number of instances generated for each point
+     * @param seed seed of the sweep, the instances of a point only depend on it and on the point
+     * @param threads number of points solved at the same time, 1 to time each point in isolation
+     */
+    static <I> void run(Family<I> family, int[] A, int[] B, int runs, long seed, int threads) {
+        List<Point> points = new ArrayList<>();
+        for (int a : A) for (int b : B) points.add(new Point(a, b, family.cost().apply(a, b)));
+
+        // the solvers are compiled before the first point, otherwise it pays the class loading and the interpreter
+        WarmUp.warm(family);
+        Metrics.reset();
+        SolverPlanner.reset();
+
+        // the largest jobs are started first, so that no big job is left alone at the end of the campaign
+        Integer[] schedule = new Integer[points.size()];
+        for (int p = 0; p < schedule.length; p++) schedule[p] = p;
+        Arrays.sort(schedule, Comparator.comparingLong((Integer p) -> points.get(p).cost()).reversed());
+
+        long start_time = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result[]>> futures = new ArrayList<>(Collections.nCopies(points.size(), null));
+        for (int p : schedule) futures.set(p, executor.submit(() -> job(family, points.get(p), runs, seed)));
+
+        StringBuilder curve = new StringBuilder("%s,%s,solver,mean_ns,mean_gap,p99_gap\n".formatted(family.a_name(), family.b_name()));
+
+        try {
+            // the rows are written in the order of the grid, so that the file reads as a curve
+            for (int p = 0; p < points.size(); p++) {
+                Point point = points.get(p);
+
+                for (Result result : futures.get(p).get()) {
+                    // the decimal point does not depend on the locale, the file must stay readable by stats.m
+                    curve.append(String.format(Locale.ROOT, "%d,%d,%s,%f,%f,%f\n", point.a(), point.b(), result.solver(),
+                            (double) result.nanos() / runs, result.gaps().mean(), result.gaps().quantile(0.99)));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdown();
+        }
+
+        long elapsed_time = System.nanoTime() - start_time;
+
+        System.out.println();
+        if (threads > 1) {
+            System.out.printf("Times measured with %d points solved at the same time, they include their contention", threads);
+            System.out.println();
+        }
+        System.out.print(curve);
+        System.out.printf("Elapsed time: %fms", (double) TimeUnit.NANOSECONDS.toMillis(elapsed_time));
+        System.out.println();
+
+        try (FileWriter file = new FileWriter("./data/sweep_%s.csv".formatted(family.name()))) {
+            file.append(curve);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Generate the instances of a point and apply every solver to each of them
+     * @return the result of each solver
+     */
+    private static <I> Result[] job(Family<I> family, Point point, int runs, long seed) {
+        long point_seed = Coordinator.mix(Coordinator.mix(seed, point.a()), point.b());
+
+        List<Solver<I>> solvers = family.solvers();
+        long[] nanos = new long[solvers.size()];
+        StreamingStats[] gaps = new StreamingStats[solvers.size()];
+        for (int s = 0; s < gaps.length; s++) gaps[s] = new StreamingStats();
+
+        int[] values = new int[solvers.size()];
+
+        for (int run = 0; run < runs; run++) {
+            // the instance is generated once and shared by all the solvers
+            I instance = family.generator().generate(point.a(), point.b(), new Random(Coordinator.mix(point_seed, run)));
+
+            for (int s = 0; s < values.length; s++) {
+                long start = System.nanoTime();
+                values[s] = solvers.get(s).solve().applyAsInt(instance);
+                nanos[s] += System.nanoTime() - start;
+            }
+
+            // the first solver is the exact one, the others are compared to it
+            int v = values[0];
+            for (int s = 0; s < values.length; s++) {
+                int diff = family.minimise() ? values[s] - v : v - values[s];
+                gaps[s].add(v == 0 ? 0 : (double) diff / (double) v);
+            }
+        }
+
+        Result[] results = new Result[solvers.size()];
+        for (int s = 0; s < results.length; s++) results[s] = new Result(solvers.get(s).name(), nanos[s], gaps[s]);
+
+        return results;
+    }
+
+    /**
+     * Definition of the problems that can be swept
+     * @param name name of the problem
+     * @return the problem, with its generator and its solvers
+     */
+    static Family<?> family(String name) {
+        return switch (name) {
+            case "bag" -> new Family<BagInstance>("bag", "objects", "capacity",
+                    new int[]{20, 50, MaximumValueBag.NMAX}, new int[]{100, MaximumValueBag.CMAX, 10 * MaximumValueBag.CMAX},
+                    (n, c, rand) -> {
+                        MaximumValueBag.BagObject[] objects = new MaximumValueBag.BagObject[n];
+                        for (int i = 0; i < n; i++) objects[i] = MaximumValueBag.BagObject.CreateRandomObject(rand);
+                        return new BagInstance(objects, c);
+                    },
+                    (n, c) -> (long) n * c, false,
+                    // glouton sorts the objects in place, each strategy gets its own copy of the generated order
+                    List.of(
+                            new Solver<>("dp", bag -> MaximumValueBag.calculerM(bag.objects(), bag.C())[bag.objects().length][bag.C()]),
+                            new Solver<>("fptas_0.1", bag -> MaximumValueBag.calculerFPTAS(bag.objects(), bag.C(), 0.1).value()),
+                            new Solver<>("planner_exact", bag -> SolverPlanner.bag(bag.objects(), bag.C(), SolverPlanner.Guarantee.EXACT).value()),
+                            new Solver<>("glouton_ratio", bag -> MaximumValueBag.glouton(bag.objects().clone(), bag.C(), Comparator.comparing(MaximumValueBag.BagObject::ratio).reversed())),
+                            new Solver<>("glouton_value", bag -> MaximumValueBag.glouton(bag.objects().clone(), bag.C(), Comparator.comparing(MaximumValueBag.BagObject::value).reversed())),
+                            new Solver<>("glouton_size", bag -> MaximumValueBag.glouton(bag.objects().clone(), bag.C(), Comparator.comparing(MaximumValueBag.BagObject::size).reversed()))
+                    ));
+            case "triangle" -> new Family<int[]>("triangle", "levels", "unused",
+                    new int[]{10, 50, MaximumPathTriangle.LMAX, 10 * MaximumPathTriangle.LMAX}, new int[]{0},
+                    (l, unused, rand) -> {
+                        int[] T = new int[l * (l + 1) / 2];
+                        for (int i = 0; i < T.length; i++) T[i] = rand.nextInt(MaximumPathTriangle.VMAX);
+                        return T;
+                    },
+                    (l, unused) -> (long) l * l, false,
+                    List.of(
+                            new Solver<>("dp", T -> MaximumPathTriangle.calculerM(T)[0]),
+                            new Solver<>("glouton", T -> MaximumPathTriangle.glouton(T, levels(T)))
+                    ));
+            case "robot" -> new Family<Grids>("robot", "lines", "columns",
+                    new int[]{10, 100, MinimumPathRobot.LMAX}, new int[]{10, 100, MinimumPathRobot.CMAX},
+                    (L, C, rand) -> new Grids(MinimumPathRobot.generateGrid(L, C, rand), MinimumPathRobot.generateGrid(L, C, rand), MinimumPathRobot.generateGrid(L, C, rand)),
+                    (L, C) -> (long) L * C, true,
+                    List.of(
+                            new Solver<>("dp", g -> MinimumPathRobot.calculerM(g.N(), g.E(), g.NE())[g.N().length - 1][g.N()[0].length - 1]),
+                            new Solver<>("glouton", g -> MinimumPathRobot.glouton(g.N(), g.E(), g.NE()))
+                    ));
+            case "planning" -> new Family<int[][]>("planning", "units", "hours",
+                    new int[]{2, 5, OptimalPlanning.TMAX}, new int[]{5, OptimalPlanning.HMAX, 4 * OptimalPlanning.HMAX},
+                    (n, H, rand) -> OptimalPlanning.generateNotes(n, H, rand),
+                    (n, H) -> (long) n * H * H, false,
+                    List.of(
+                            new Solver<>("dp", E -> OptimalPlanning.calculerMA(E)[0][E.length][E[0].length - 1]),
+                            new Solver<>("planner_exact", E -> SolverPlanner.planning(E, SolverPlanner.Guarantee.EXACT).value()),
+                            new Solver<>("marginal", E -> SolverPlanner.marginal(E, E[0].length - 1))
+                    ));
+            case "warehouse" -> new Family<int[][]>("warehouse", "warehouses", "stock",
+                    new int[]{5, 20, OptimalWarehouse.WMAX}, new int[]{5, 20, OptimalWarehouse.SMAX},
+                    (n, S, rand) -> OptimalWarehouse.generateGain(n, S, rand),
+                    (n, S) -> (long) n * S * S, false,
+                    List.of(
+                            new Solver<>("dp", G -> OptimalWarehouse.calculerMA(G)[G.length][G[0].length - 1]),
+                            new Solver<>("planner_exact", G -> SolverPlanner.warehouse(G, SolverPlanner.Guarantee.EXACT).value()),
+                            new Solver<>("marginal", G -> SolverPlanner.marginal(G, G[0].length - 1))
+                    ));
+            default -> throw new IllegalArgumentException("unknown problem: " + name);
+        };
+    }
+
+    private static int levels(int[] T) {
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+        return L;
+    }
+
+    private static int[] parse(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * A problem that can be swept
+     *
+     * @param name      name of the problem
+     * @param a_name    name of the first size parameter
+     * @param b_name    name of the second size parameter
+     * @param A         default values of the first size parameter
+     * @param B         default values of the second size parameter
+     * @param generator creates a random instance of the given sizes with the given PRNG
+     * @param cost      estimated cost of an instance of the given sizes
+     * @param minimise  true if the optimum is the smallest value
+     * @param solvers   solvers to compare, the first one being the exact reference
+     */
+    record Family<I>(String name, String a_name, String b_name, int[] A, int[] B,
+                     Generator<I> generator, BiFunction<Integer, Integer, Long> cost,
+                     boolean minimise, List<Solver<I>> solvers) {
+    }
+
+    /**
+     * Creates the instances of a problem
+     */
+    interface Generator<I> {
+        I generate(int a, int b, Random rand);
+    }
+
+    /**
+     * @param name  name of the solver in the results
+     * @param solve gives the value found by the solver on an instance
+     */
+    record Solver<I>(String name, ToIntFunction<I> solve) {
+    }
+
+    /**
+     * A point of the grid
+     *
+     * @param a    first size parameter
+     * @param b    second size parameter
+     * @param cost estimated cost of an instance
+     */
+    record Point(int a, int b, long cost) {
+    }
+
+    /**
+     * Results of a solver on a point of the grid
+     *
+     * @param solver name of the solver
+     * @param nanos  total time spent by the solver
+     * @param gaps   relative gaps to the exact reference
+     */
+    record Result(String solver, long nanos, StreamingStats gaps) {
+    }
+
+    record BagInstance(MaximumValueBag.BagObject[] objects, int C) {
+    }
+
+    record Grids(int[][] N, int[][] E, int[][] NE) {
+    }
+}
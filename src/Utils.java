@@ -10,25 +10,38 @@ public class Utils {
     private static final String SEPARATOR = "\n";
 
     /**
-     * Export data under the requested format in order to generate graph
-     * @param name name of the file to create
-     * @param data data to be used in the file
+     * number of runs between two summaries printed during a launch
      */
-    public static void export_data(String name, double[] data) {
-        try {
-            FileWriter file = new FileWriter("./data/%s.csv".formatted(name));
+    private static final int SUMMARY_PERIOD = 1000;
 
-            for (double datum : data) {
-                file.append(Double.toString(datum));
-                file.append(SEPARATOR);
-            }
-
-            file.close();
+    /**
+     * Export the statistics of a launch: the histogram of the values and a summary
+     * @param name name of the files to create
+     * @param stats statistics to be used in the files
+     */
+    public static void export_stats(String name, StreamingStats stats) {
+        try (FileWriter histogram = new FileWriter("./data/%s_histogram.csv".formatted(name));
+             FileWriter summary = new FileWriter("./data/%s_summary.txt".formatted(name))) {
+            histogram.append(stats.histogram());
+            summary.append(stats.toString()).append(SEPARATOR);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Print the summary of the statistics regularly during a launch
+     * @param run number of runs done
+     * @param stats statistics of the launch
+     */
+    public static void print_summary(int run, StreamingStats stats) {
+        if (run % SUMMARY_PERIOD != 0) return;
+
+        System.out.println();
+        System.out.printf("SUMMARY after %d runs: %s", run, stats);
+        System.out.println();
+    }
+
     /**
      * Print the results of the strategies
      * @param g result of the greedy strategy
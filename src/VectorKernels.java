@@ -0,0 +1,58 @@
+/**
+ * Kernels of RowKernels written with the Vector API, one SIMD register of cells at a time
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API is an incubator module: this class is compiled with --add-modules jdk.incubator.vector,
+ * and only loaded by RowKernels when the JVM was started with the same option
+ */
+class VectorKernels {
+    /**
+     * widest register of the processor (8 ints with AVX2, 16 with AVX-512)
+     */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * @see RowKernels#maxShiftAdd(int[], int[], int, int, int)
+     */
+    static void maxShiftAdd(int[] prev, int[] cur, int shift, int add, int length) {
+        int head = Math.min(shift, length);
+        System.arraycopy(prev, 0, cur, 0, head);
+
+        int c = head;
+        for (int bound = head + SPECIES.loopBound(length - head); c < bound; c += SPECIES.length()) {
+            IntVector kept = IntVector.fromArray(SPECIES, prev, c);
+            IntVector taken = IntVector.fromArray(SPECIES, prev, c - shift).add(add);
+            kept.max(taken).intoArray(cur, c);
+        }
+
+        // the cells left after the last full register
+        for (; c < length; c++) {
+            cur[c] = Math.max(prev[c], prev[c - shift] + add);
+        }
+    }
+
+    /**
+     * @see RowKernels#maxPairAdd(int[], int[], int, int[], int)
+     */
+    static void maxPairAdd(int[] below, int[] add, int offset, int[] row, int length) {
+        int p = 0;
+        for (int bound = SPECIES.loopBound(length); p < bound; p += SPECIES.length()) {
+            IntVector left = IntVector.fromArray(SPECIES, below, p);
+            IntVector right = IntVector.fromArray(SPECIES, below, p + 1);
+            left.max(right).add(IntVector.fromArray(SPECIES, add, offset + p)).intoArray(row, p);
+        }
+
+        for (; p < length; p++) {
+            row[p] = Math.max(below[p], below[p + 1]) + add[offset + p];
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Warm-up of the solvers before the measured runs, so that the JIT has compiled them
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class WarmUp {
+    /**
+     * The mains and the workers warm up when the JVM is started with -Dwarmup=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("warmup");
+
+    /**
+     * Class data archive of the solvers. The classes must be in a jar (jar cf solvers.jar -C out .),
+     * the archive is created by a training run: java -XX:ArchiveClassesAtExit=data/solvers.jsa -cp solvers.jar WarmUp
+     * then used by the next JVMs with -XX:SharedArchiveFile=data/solvers.jsa
+     */
+    public static final Path ARCHIVE = Path.of("./data/solvers.jsa");
+
+    /**
+     * number of resolutions of the instance in a batch
+     */
+    private static final int BATCH = 20;
+
+    /**
+     * relative change of the mean time of a batch under which the solvers are considered compiled
+     */
+    private static final double STABLE = 0.05;
+
+    /**
+     * number of consecutive stable batches needed to reach the steady state
+     */
+    private static final int STABLE_BATCHES = 3;
+
+    /**
+     * maximum time spent warming up one problem
+     */
+    private static final long BUDGET_SECONDS = 10;
+
+    public static void main(String[] args) {
+        // used alone, as the training run of the class data archive, every problem is warmed up
+        run(args.length > 0 ? args : new String[]{"bag", "triangle", "robot", "planning", "warehouse"});
+    }
+
+    /**
+     * Warm up the solvers of some problems and print the time to the first result and to the steady state.
+     * The calls of the warm-up are then removed from the metrics and from the decisions of the planner.
+     * @param names problems to warm up, as named by the sweeps
+     */
+    public static void run(String... names) {
+        System.out.println("WARM-UP");
+
+        for (String name : names) {
+            Report report = warm(Sweep.family(name));
+
+            System.out.printf("%-10s first result: %fms (%fms for the call), steady state: %dms after %d batches%s",
+                    name, report.first_result() / 1e6, report.first_call() / 1e6, report.steady_state(), report.batches(),
+                    report.stable() ? "" : " (budget exhausted)");
+            System.out.println();
+        }
+
+        System.out.printf("Warm-up done %dms after the start of the JVM", uptime());
+        System.out.println();
+
+        Metrics.reset();
+        SolverPlanner.reset();
+
+        if (!Files.exists(ARCHIVE)) {
+            System.out.printf("No class data archive, create it with: java -XX:ArchiveClassesAtExit=%s -cp solvers.jar WarmUp", ARCHIVE);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Solve a representative instance of a problem with all its solvers until their time is stable
+     * @param family problem to warm up
+     * @return the timings of the warm-up
+     */
+    static <I> Report warm(Sweep.Family<I> family) {
+        long begin = System.nanoTime();
+
+        // a medium instance of the default grid of the sweeps
+        I instance = family.generator().generate(family.A()[family.A().length / 2], family.B()[family.B().length / 2], new Random(2102));
+        List<Sweep.Solver<I>> solvers = family.solvers();
+
+        long start = System.nanoTime();
+        for (Sweep.Solver<I> solver : solvers) solver.solve().applyAsInt(instance);
+        long first_call = System.nanoTime() - start;
+        long first_result = System.nanoTime() - begin;
+
+        SolveContext budget = SolveContext.within(BUDGET_SECONDS, TimeUnit.SECONDS);
+        double previous = Double.NaN;
+        int stable = 0, batches = 0;
+
+        while (stable < STABLE_BATCHES && !budget.expired()) {
+            start = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                for (Sweep.Solver<I> solver : solvers) solver.solve().applyAsInt(instance);
+            }
+            double mean = (double) (System.nanoTime() - start) / BATCH;
+
+            stable = Math.abs(mean - previous) <= STABLE * previous ? stable + 1 : 0;
+            previous = mean;
+            batches++;
+        }
+
+        long steady_state = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        return new Report(first_call, first_result, steady_state, batches, stable >= STABLE_BATCHES);
+    }
+
+    /**
+     * @return time since the start of the JVM, in milliseconds
+     */
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Timings of the warm-up of a problem
+     *
+     * @param first_call   duration of the first (cold) resolution by all the solvers, in nanoseconds
+     * @param first_result time from the start of the warm-up of the problem to its first result, in nanoseconds
+     * @param steady_state time from the start of the warm-up of the problem to the steady state, in milliseconds
+     * @param batches      number of batches needed to reach the steady state
+     * @param stable       false if the budget ran out before the steady state
+     */
+    record Report(long first_call, long first_result, long steady_state, int batches, boolean stable) {
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Longest path in a directed acyclic graph with weighted nodes, of which the triangle is a special case
+ *
+ * Code written in the framework of the IGI-2102 unit by Corentin Poupry (corentin.poupry@edu.esiee.fr) and Neo Jonas
+ * (neo.jonas@edu.esiee.fr). All rights reserved.
+ *
+ * Created with Java 18
+ **/
+
+import java.util.Arrays;
+
+public class WeightedDag {
+    /**
+     * weight of each node
+     */
+    private final int[] weights;
+
+    /**
+     * compressed sparse rows: the successors of the node v are targets[offsets[v]] to targets[offsets[v + 1] - 1]
+     */
+    private final int[] offsets;
+    private final int[] targets;
+
+    private WeightedDag(int[] weights, int[] offsets, int[] targets) {
+        this.weights = weights;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Create a graph from its list of edges, in any order
+     * @param weights weight of each node
+     * @param from origin of each edge
+     * @param to destination of each edge
+     * @return the graph
+     */
+    public static WeightedDag fromEdges(int[] weights, int[] from, int[] to) {
+        if (from.length != to.length) throw new IllegalArgumentException("every edge must have an origin and a destination");
+
+        int n = weights.length;
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[to.length];
+
+        // counting sort of the edges by origin
+        for (int v : from) offsets[v + 1]++;
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < from.length; e++) targets[next[from[e]]++] = to[e];
+
+        return new WeightedDag(weights, offsets, targets);
+    }
+
+    /**
+     * Create the graph of a triangle: each value leads to its left and right descendants
+     * @param T triangle's data
+     * @return the graph, the top of the triangle being the node 0
+     */
+    public static WeightedDag fromTriangle(int[] T) {
+        int L = 0;
+        while (L * (L + 1) / 2 < T.length) L++;
+
+        // the leaves of the last level have no successor
+        int inner = (L - 1) * L / 2;
+        int[] offsets = new int[T.length + 1];
+        int[] targets = new int[2 * inner];
+
+        for (int l = 0, i = 0; l < L - 1; l++) {
+            for (int p = 0; p <= l; p++, i++) {
+                int below = (l + 1) * (l + 2) / 2 + p;
+                targets[2 * i] = below;
+                targets[2 * i + 1] = below + 1;
+                offsets[i + 1] = 2 * i + 2;
+            }
+        }
+        Arrays.fill(offsets, inner + 1, T.length + 1, 2 * inner);
+
+        return new WeightedDag(T, offsets, targets);
+    }
+
+    public int nodes() {
+        return weights.length;
+    }
+
+    public int edges() {
+        return targets.length;
+    }
+
+    /**
+     * Topological order of the nodes (Kahn's algorithm), linear in the number of edges
+     * @return the nodes, each one before all its successors
+     */
+    public int[] order() {
+        int n = weights.length;
+        int[] in = new int[n];
+        for (int v : targets) in[v]++;
+
+        // the order itself is the queue: the nodes are appended once all their predecessors are placed
+        int[] order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) if (in[v] == 0) order[tail++] = v;
+
+        for (int head = 0; head < tail; head++) {
+            int v = order[head];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (--in[targets[e]] == 0) order[tail++] = targets[e];
+            }
+        }
+
+        if (tail != n) throw new IllegalArgumentException("the graph has a cycle");
+
+        return order;
+    }
+
+    /**
+     * Apply the optimal strategy, in the reverse topological order
+     * @return the resolution array: m(v) = weight(v) + max over the successors s of m(s), weight(v) for a node without successor
+     */
+    public int[] calculerM() {
+        long probe = Metrics.start();
+
+        int[] order = order();
+        int[] M = new int[weights.length];
+
+        for (int k = order.length - 1; k >= 0; k--) {
+            int v = order[k];
+            int start = offsets[v], end = offsets[v + 1];
+
+            int best = start < end ? M[targets[start]] : 0;
+            for (int e = start + 1; e < end; e++) best = Math.max(best, M[targets[e]]);
+
+            M[v] = weights[v] + best;
+        }
+
+        Metrics.record(Metrics.Solver.DAG_DP, probe, weights.length, targets.length);
+
+        return M;
+    }
+
+    /**
+     * @return the value of the longest path starting from a node without predecessor
+     */
+    public int longest() {
+        int[] M = calculerM();
+
+        boolean[] reached = new boolean[weights.length];
+        for (int v : targets) reached[v] = true;
+
+        int best = Integer.MIN_VALUE;
+        for (int v = 0; v < M.length; v++) if (!reached[v]) best = Math.max(best, M[v]);
+
+        return best;
+    }
+
+    /**
+     * Follow the best successors from a node
+     * @param M resolution array
+     * @param source first node of the path
+     * @return the nodes of the longest path starting from the source
+     */
+    public int[] path(int[] M, int source) {
+        int[] path = new int[weights.length];
+        int length = 0;
+
+        for (int v = source; v != -1; ) {
+            path[length++] = v;
+
+            int next = -1;
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (next == -1 || M[targets[e]] > M[next]) next = targets[e];
+            }
+            v = next;
+        }
+
+        return Arrays.copyOf(path, length);
+    }
+}
@@ -1,14 +1,24 @@
 PATH = "./data";
 
 args = argv();
-FILE = args{1};
+% nom de la série, l'extension d'un ancien fichier .csv est ignorée
+NAME = regexprep(args{1}, "\\.csv$", "");
 
-data = csvread(fullfile(PATH, FILE));
+% les statistiques sont calculées au fil des exécutions par le programme (StreamingStats)
+% et exportées dans <nom>_summary.txt sous la forme cle=valeur
+text = fileread(fullfile(PATH, [NAME "_summary.txt"]));
+tokens = regexp(text, "(\\w+)=(\\S+)", "tokens");
+
+data = struct();
+for i = 1:numel(tokens)
+  % la locale de la JVM peut écrire les décimales avec une virgule
+  data.(tokens{i}{1}) = str2double(strrep(tokens{i}{2}, ",", "."));
+end
 
 format short g
 
-disp("File"), disp(FILE)
-disp("Moyenne "), disp(mean(data))
-disp("Médiante "), disp(median(data))
-disp("Variance "), disp(var(data))
-disp("Ecart type"), disp(std(data))
+disp("File"), disp(NAME)
+disp("Moyenne "), disp(data.mean)
+disp("Médiante "), disp(data.median)
+disp("Variance "), disp(data.variance)
+disp("Ecart type"), disp(data.std)